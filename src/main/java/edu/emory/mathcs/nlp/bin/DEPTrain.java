@@ -17,6 +17,8 @@ package edu.emory.mathcs.nlp.bin;
 
 import java.util.List;
 
+import org.kohsuke.args4j.Option;
+
 import edu.emory.mathcs.nlp.common.util.IOUtils;
 import edu.emory.mathcs.nlp.component.dep.DEPConfig;
 import edu.emory.mathcs.nlp.component.dep.DEPEval;
@@ -40,6 +42,10 @@ import edu.emory.mathcs.nlp.learn.weight.MultinomialWeightVector;
  */
 public class DEPTrain extends NLPTrain<DEPNode,DEPState<DEPNode>>
 {
+	/** Not initialized here because options are set by the super constructor before field initializers run. */
+	@Option(name="-beam", usage="beam size for decoding development files (default: 1)", required=false, metaVar="<integer>")
+	public int beam_size;
+	
 	public DEPTrain(String[] args)
 	{
 		super(args);
@@ -60,7 +66,9 @@ public class DEPTrain extends NLPTrain<DEPNode,DEPState<DEPNode>>
 	@Override
 	protected NLPComponent<DEPNode,DEPState<DEPNode>> createComponent()
 	{
-		return new DEPParser<>(new StringModel(new MultinomialWeightVector()));
+		DEPParser<DEPNode> parser = new DEPParser<>(new StringModel(new MultinomialWeightVector()));
+		parser.setBeamSize(beam_size);
+		return parser;
 	}
 	
 	@Override
@@ -0,0 +1,53 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.bin;
+
+import java.io.ObjectInputStream;
+
+import org.kohsuke.args4j.Option;
+
+import edu.emory.mathcs.nlp.common.util.BinUtils;
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.util.BinaryModelIO;
+import edu.emory.mathcs.nlp.component.util.NLPComponent;
+
+/**
+ * Converts a serialized (XZ) model to the binary model format (see {@link BinaryModelIO}).
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class ModelConverter
+{
+	@Option(name="-i", usage="serialized model file (required)", required=true, metaVar="<filename>")
+	public String input_file;
+	@Option(name="-o", usage="binary model file (required)", required=true, metaVar="<filename>")
+	public String output_file;
+	
+	public ModelConverter(String[] args) throws Exception
+	{
+		BinUtils.initArgs(args, this);
+		
+		ObjectInputStream in = IOUtils.createObjectXZBufferedInputStream(input_file);
+		NLPComponent<?,?> component = (NLPComponent<?,?>)in.readObject();
+		in.close();
+		
+		BinaryModelIO.write(component, output_file);
+	}
+	
+	static public void main(String[] args) throws Exception
+	{
+		new ModelConverter(args);
+	}
+}
@@ -26,11 +26,15 @@ import edu.emory.mathcs.nlp.common.util.IOUtils;
 import edu.emory.mathcs.nlp.common.util.Joiner;
 import edu.emory.mathcs.nlp.common.util.MathUtils;
 import edu.emory.mathcs.nlp.component.dep.DEPIndex;
+import edu.emory.mathcs.nlp.component.dep.DEPParser;
+import edu.emory.mathcs.nlp.component.util.BatchDecoder;
+import edu.emory.mathcs.nlp.component.util.BinaryModelIO;
 import edu.emory.mathcs.nlp.component.util.NLPComponent;
 import edu.emory.mathcs.nlp.component.util.node.NLPNode;
 import edu.emory.mathcs.nlp.component.util.reader.TSVIndex;
 import edu.emory.mathcs.nlp.component.util.reader.TSVReader;
 import edu.emory.mathcs.nlp.component.util.state.NLPState;
+import edu.emory.mathcs.nlp.learn.util.PredictionContext;
 
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
@@ -43,31 +47,50 @@ public class SpeedTest<N extends NLPNode,S extends NLPState<N>>
 	public String input_file;
 	@Option(name="-o", usage="output file (optional)", required=false, metaVar="<filename>")
 	public String output_file;
+	@Option(name="-th", usage="number of threads (default: 1)", required=false, metaVar="<integer>")
+	public int thread_size = 1;
+	@Option(name="-beam", usage="beam size for dependency parsing (default: 1)", required=false, metaVar="<integer>")
+	public int beam_size = 1;
 	
-	@SuppressWarnings("unchecked")
 	public SpeedTest(String[] args) throws Exception
 	{
 		BinUtils.initArgs(args, this);
 		
-		ObjectInputStream obj = IOUtils.createObjectXZBufferedInputStream(model_file);
-		NLPComponent<N,S> component = (NLPComponent<N,S>)obj.readObject();
-		obj.close();
+		NLPComponent<N,S> component = readComponent();
+		if (component instanceof DEPParser) ((DEPParser<?>)component).setBeamSize(beam_size);
 		
 		PrintStream out = (output_file != null) ? IOUtils.createBufferedPrintStream(output_file) : null;
 		TSVReader<N> reader = new TSVReader<N>(createTSVIndex());
 		reader.open(IOUtils.createFileInputStream(input_file));
+		BatchDecoder<N,S> decoder = new BatchDecoder<>(component, thread_size);
 		SpeedEval speed = new SpeedEval(component, 10);
-		N[] nodes;
+		long st, et;
 		
-		while ((nodes = reader.next()) != null)
+		st = System.currentTimeMillis();
+		decoder.process(reader.iterator(), speed::measure, (nodes, t) ->
 		{
-			speed.measure(nodes);
+			speed.add(nodes, t);
 			if (out != null) out.println(Joiner.join(nodes, "\n", startIndex(nodes))+"\n");
-		}
+		});
+		et = System.currentTimeMillis();
 		
-		out.close();
+		if (out != null) out.close();
 		reader.close();
 		System.out.println(speed.toString());
+		System.out.printf("Threads: %d, Sentences/Sec. (wall-clock): %f\n", decoder.getThreadSize(), MathUtils.divide(speed.sentence_count, 0.001 * (et - st)));
+	}
+	
+	/** Reads the model in the binary format if it is; otherwise, deserializes the XZ model. */
+	@SuppressWarnings("unchecked")
+	public NLPComponent<N,S> readComponent() throws Exception
+	{
+		if (BinaryModelIO.isBinary(model_file))
+			return BinaryModelIO.read(model_file);
+		
+		ObjectInputStream obj = IOUtils.createObjectXZBufferedInputStream(model_file);
+		NLPComponent<N,S> component = (NLPComponent<N,S>)obj.readObject();
+		obj.close();
+		return component;
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -103,15 +126,20 @@ public class SpeedTest<N extends NLPNode,S extends NLPState<N>>
 			Arrays.fill(total_times    , 0);
 		}
 		
-		public void measure(N[] nodes)
+		/** Decodes the nodes on the current thread and returns the decoding time in milliseconds. */
+		public long measure(N[] nodes, PredictionContext context)
 		{
-			long st, et, t;
+			long st, et;
 			
 			st = System.currentTimeMillis();
-			component.process(nodes);
+			component.decode(nodes, context);
 			et = System.currentTimeMillis();
-			t = et - st;
-
+			return et - st;
+		}
+		
+		/** Adds the decoding time of the nodes; called on a single thread. */
+		public void add(N[] nodes, long t)
+		{
 			int wc = nodes.length - startIndex(nodes);
 			sentence_count++;
 			token_count += wc;
@@ -38,6 +38,13 @@ public class DEPEval implements Eval
 		this.total += total;
 	}
 	
+	@Override
+	public void add(Eval eval)
+	{
+		DEPEval e = (DEPEval)eval;
+		add(e.las, e.uas, e.total);
+	}
+	
 	public void clear()
 	{
 		las = uas = total = 0;
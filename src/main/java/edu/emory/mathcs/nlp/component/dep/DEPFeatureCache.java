@@ -0,0 +1,84 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.dep;
+
+/**
+ * Features that depend only on the tokens, not on the parsing states, computed once per sentence and indexed by node IDs.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DEPFeatureCache
+{
+	/** Words shorter than this do not have prefixes or suffixes. */
+	static public final int MIN_AFFIX_LENGTH = 4;
+	static public final int AFFIX_LENGTH = 3;
+	
+	private String[] uncapitalized_word_forms;
+	private String[] prefixes;
+	private String[] suffixes;
+	private String[] capitalized;
+	
+	public DEPFeatureCache(DEPNode[] nodes)
+	{
+		int i, length, size = nodes.length;
+		String form, lower;
+		
+		uncapitalized_word_forms = new String[size];
+		prefixes    = new String[size];
+		suffixes    = new String[size];
+		capitalized = new String[size];
+		
+		for (i=0; i<size; i++)
+		{
+			form  = nodes[i].getWordForm();
+			lower = form.toLowerCase();
+			uncapitalized_word_forms[i] = lower;
+			capitalized[i] = form.equals(lower) ? "0" : "1";
+			
+			form   = nodes[i].getSimplifiedWordForm();
+			length = form.length();
+			
+			if (length >= MIN_AFFIX_LENGTH)
+			{
+				prefixes[i] = form.substring(0, AFFIX_LENGTH);
+				suffixes[i] = form.substring(length - AFFIX_LENGTH, length);
+			}
+		}
+	}
+	
+	/** @return the lowercase word-form of the node. */
+	public String getUncapitalizedWordForm(DEPNode node)
+	{
+		return uncapitalized_word_forms[node.getID()];
+	}
+	
+	/** @return the first 3 characters of the simplified word-form if the form has at least 4 characters; otherwise, null. */
+	public String getPrefix(DEPNode node)
+	{
+		return prefixes[node.getID()];
+	}
+	
+	/** @return the last 3 characters of the simplified word-form if the form has at least 4 characters; otherwise, null. */
+	public String getSuffix(DEPNode node)
+	{
+		return suffixes[node.getID()];
+	}
+	
+	/** @return "1" if the word-form contains any uppercase letter; otherwise, "0". */
+	public String getCapitalized(DEPNode node)
+	{
+		return capitalized[node.getID()];
+	}
+}
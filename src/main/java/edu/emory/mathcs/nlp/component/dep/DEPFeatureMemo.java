@@ -0,0 +1,91 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.dep;
+
+/**
+ * Feature values of a parsing state memoized by (feature slot, source node ID).
+ * A value stays valid until an arc gets added near its source node (see {@link #addArc(DEPTree, int, int)}).
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DEPFeatureMemo
+{
+	private String[] values;
+	/** epochs[slot*node_size+id] = 1 + versions[id] when the value was memoized; 0 if never memoized. */
+	private int[]    epochs;
+	/** versions[id] = the number of arcs that could have changed the features of the node. */
+	private int[]    versions;
+	private int      node_size;
+	
+	public DEPFeatureMemo(int slotSize, int nodeSize)
+	{
+		values   = new String[slotSize * nodeSize];
+		epochs   = new int   [slotSize * nodeSize];
+		versions = new int   [nodeSize];
+		node_size = nodeSize;
+	}
+	
+	/** @return true if the value of the slot for the node has been memoized since the node was last affected by an arc. */
+	public boolean contains(int slot, int id)
+	{
+		return epochs[slot * node_size + id] == versions[id] + 1;
+	}
+	
+	public String get(int slot, int id)
+	{
+		return values[slot * node_size + id];
+	}
+	
+	public void put(int slot, int id, String value)
+	{
+		epochs[slot * node_size + id] = versions[id] + 1;
+		values[slot * node_size + id] = value;
+	}
+	
+	/**
+	 * Invalidates the values of the nodes whose features can see the new arc within 2 steps:
+	 * a node, its head, grand-head, dependents, and siblings read the label and the valency of the nodes within 2 arcs.
+	 * Must be called after the dependent gets attached to the head in the tree.
+	 */
+	public void addArc(DEPTree tree, int head, int dependent)
+	{
+		int grandHead = tree.getHead(head);
+		
+		touch(head);
+		touch(dependent);
+		touchDependents(tree, dependent, 2);
+		touchDependents(tree, head, 2);	// includes the dependent
+		
+		if (grandHead >= 0)
+		{
+			touch(grandHead);
+			touchDependents(tree, grandHead, 1);	// siblings of the head
+		}
+	}
+	
+	private void touch(int id)
+	{
+		versions[id]++;
+	}
+	
+	private void touchDependents(DEPTree tree, int id, int depth)
+	{
+		for (int dep=tree.getFirstDependent(id); dep >= 0; dep=tree.getNextSibling(dep))
+		{
+			touch(dep);
+			if (depth > 1) touchDependents(tree, dep, depth-1);
+		}
+	}
+}
@@ -15,9 +15,12 @@
  */
 package edu.emory.mathcs.nlp.component.dep;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import edu.emory.mathcs.nlp.component.util.feature.Direction;
 import edu.emory.mathcs.nlp.component.util.feature.FeatureItem;
@@ -30,84 +33,118 @@ import edu.emory.mathcs.nlp.component.util.feature.Field;
 public abstract class DEPFeatureTemplate extends FeatureTemplate<DEPNode,DEPState<DEPNode>>
 {
 	private static final long serialVersionUID = -2218894375050796569L;
-	private static final int MIN_LENGTH = 4;
+
+	/** The number of memo slots, where features with the same (relation, field, value) share a slot (see {@link FeatureItem#slot}). */
+	private transient int memo_size;
 
 	public DEPFeatureTemplate()	
 	{
 		init();
+		initMemoSlots();
 	}
 	
 	protected abstract void init();
 	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		initMemoSlots();
+	}
+	
+	/**
+	 * Assigns a memo slot to every feature that walks the tree ({@link FeatureItem#relation}) or builds a string ({@link Field#valency}),
+	 * so the value is reused for the same source node until an arc is added near the node (see {@link DEPFeatureMemo}).
+	 * Other features are cheaper to look up directly; {@link Field#path} also depends on the input so it cannot be memoized.
+	 */
+	private void initMemoSlots()
+	{
+		Map<List<Object>,Integer> keys = new HashMap<>();
+		
+		for (FeatureItem<?>[] items : feature_list)
+		{
+			for (FeatureItem<?> item : items)
+			{
+				if (item.field != Field.path && (item.relation != null || item.field == Field.valency))
+					item.slot = keys.computeIfAbsent(Arrays.asList(item.relation, item.field, item.value), k -> keys.size());
+				else
+					item.slot = -1;
+			}
+		}
+		
+		memo_size = keys.size();
+	}
+	
 //	========================= FEATURE EXTRACTORS =========================
 	
+	/** Features are reused from {@link DEPState#getFeatureMemo(int)} if they have been extracted for the same node since it was affected by an arc. */
 	@Override
-	protected String getFeature(FeatureItem<?> item)
+	protected String getFeature(DEPState<DEPNode> state, FeatureItem<?> item)
 	{
-		DEPNode node = getNode(item);
+		DEPNode node = getSourceNode(state, item);
 		if (node == null) return null;
-		int length;
+		if (item.slot < 0) return getFeature(state, item, getNode(state, node, item));
+		
+		DEPFeatureMemo memo = state.getFeatureMemo(memo_size);
+		int id = node.getID();
+		if (memo.contains(item.slot, id)) return memo.get(item.slot, id);
+		
+		String f = getFeature(state, item, getNode(state, node, item));
+		memo.put(item.slot, id, f);
+		return f;
+	}
+	
+	/** Token features such as {@link Field#prefix} are looked up from {@link DEPState#getFeatureCache()}; arc features are read from the state. */
+	protected String getFeature(DEPState<DEPNode> state, FeatureItem<?> item, DEPNode node)
+	{
+		if (node == null) return null;
+		
 		switch (item.field)
 		{
 		case word_form: return node.getWordForm();
 		case simplified_word_form: return node.getSimplifiedWordForm();
-		case uncapitalized_simplified_word_form: return node.getWordForm().toLowerCase();
+		case uncapitalized_simplified_word_form: return state.getFeatureCache().getUncapitalizedWordForm(node);
 		case lemma: return node.getLemma();
 		case pos_tag: return node.getPOSTag();
 		case feats: return node.getFeat((String)item.value);
-		case dependency_label: return node.getLabel();
-		case valency: return node.getValency((Direction)item.value);
-		case suffix: 
-			length = node.getSimplifiedWordForm().length();
-			if (length < MIN_LENGTH) {
-				return null;
-			}
-			return node.getSimplifiedWordForm().substring(length - 3, length);
-		case prefix: 
-			length = node.getSimplifiedWordForm().length();
-			if (length < MIN_LENGTH) {
-				return null;
-			}
-			return node.getSimplifiedWordForm().substring(0, 3);
-		case capitalized:
-			if  (!node.getWordForm().equals(node.getWordForm().toLowerCase())) {
-				return "1";
-			}
-			return "0";
+		case dependency_label: return state.getLabel(node);
+		case valency: return state.getValency(node, (Direction)item.value);
+		case suffix: return state.getFeatureCache().getSuffix(node);
+		case prefix: return state.getFeatureCache().getPrefix(node);
+		case capitalized: return state.getFeatureCache().getCapitalized(node);
 		case path:
-			return node.getPath(state.getInput(), Field.dependency_label);
+			return state.getPath(node, state.getInput());
 
 		default: throw new IllegalArgumentException("Unsupported feature: "+item.field);
 		}
 	}
 	
 	@Override
-	protected String[] getFeatures(FeatureItem<?> item)
+	protected String[] getFeatures(DEPState<DEPNode> state, FeatureItem<?> item)
 	{
-		DEPNode node = getNode(item);
+		DEPNode node = getNode(state, item);
 		if (node == null) return null;
 		
 		switch (item.field)
 		{
 		case ancestorSize:
-			return getAncestorFeatures(node);
-		case binary: return getBinaryFeatures(node);
+			return getAncestorFeatures(state, node);
+		case binary: return getBinaryFeatures(state, node);
 		default: throw new IllegalArgumentException("Unsupported feature: "+item.field);
 		}
 	}
-	protected String[] getAncestorFeatures(DEPNode node)
+	protected String[] getAncestorFeatures(DEPState<DEPNode> state, DEPNode node)
 	{
-		Set<DEPNode> ancestors = node.getAncestorSet();
+		List<DEPNode> ancestors = state.getAncestorList(node);
 		String[] ancestorArray = new String[ancestors.size()];
 		int i = 0;
 		for (DEPNode d : ancestors) {
-			ancestorArray[i] = d.getLabel();
+			ancestorArray[i] = state.getLabel(d);
 			i++;
 		}
 		return ancestorArray;
 
 	}
-	protected String[] getBinaryFeatures(DEPNode node)
+	protected String[] getBinaryFeatures(DEPState<DEPNode> state, DEPNode node)
 	{
 		String[] values = new String[2];
 		int index = 0;
@@ -118,41 +155,46 @@ public abstract class DEPFeatureTemplate extends FeatureTemplate<DEPNode,DEPStat
 		return (index == 0) ? null : (index == values.length) ? values : Arrays.copyOf(values, index);
 	}
 	
-	protected DEPNode getNode(FeatureItem<?> item)
+	protected DEPNode getNode(DEPState<DEPNode> state, FeatureItem<?> item)
+	{
+		return getNode(state, getSourceNode(state, item), item);
+	}
+	
+	/** @return the node at the source and the window of the item before its relation is applied. */
+	protected DEPNode getSourceNode(DEPState<DEPNode> state, FeatureItem<?> item)
 	{
-		DEPNode node = null;
-		
 		switch (item.source)
 		{
-		case i: node = state.getStack (item.window); break;
-		case j: node = state.getInput (item.window); break;
-		case k: node = state.peekStack(item.window); break;
+		case i: return state.getStack (item.window);
+		case j: return state.getInput (item.window);
+		case k: return state.peekStack(item.window);
 		}
 		
-		return getNode(node, item);
+		return null;
 	}
 	
-	protected DEPNode getNode(DEPNode node, FeatureItem<?> item)
+	/** @return the node related to the specific node by the relation of the item in the state. */
+	protected DEPNode getNode(DEPState<DEPNode> state, DEPNode node, FeatureItem<?> item)
 	{
 		if (node == null || item.relation == null)
 			return node;
 		
 		switch (item.relation)
 		{
-		case h   : return node.getHead();
-		case h2  : return node.getGrandHead();
-		case lmd : return node.getLeftMostDependent();
-		case lmd2: return node.getLeftMostDependent(1);
-		case lnd : return node.getLeftNearestDependent();
-		case lnd2: return node.getLeftNearestDependent(1);
-		case lns : return node.getLeftNearestSibling();
-		case lns2: return node.getLeftNearestSibling(1);
-		case rmd : return node.getRightMostDependent();
-		case rmd2: return node.getRightMostDependent(1);
-		case rnd : return node.getRightNearestDependent();
-		case rnd2: return node.getRightNearestDependent(1);
-		case rns : return node.getRightNearestSibling();
-		case rns2: return node.getRightNearestSibling(1);
+		case h   : return state.getHead(node);
+		case h2  : return state.getGrandHead(node);
+		case lmd : return state.getLeftMostDependent(node, 0);
+		case lmd2: return state.getLeftMostDependent(node, 1);
+		case lnd : return state.getLeftNearestDependent(node, 0);
+		case lnd2: return state.getLeftNearestDependent(node, 1);
+		case lns : return state.getLeftNearestSibling(node, 0);
+		case lns2: return state.getLeftNearestSibling(node, 1);
+		case rmd : return state.getRightMostDependent(node, 0);
+		case rmd2: return state.getRightMostDependent(node, 1);
+		case rnd : return state.getRightNearestDependent(node, 0);
+		case rnd2: return state.getRightNearestDependent(node, 1);
+		case rns : return state.getRightNearestSibling(node, 0);
+		case rns2: return state.getRightNearestSibling(node, 1);
 		}
 		
 		return null;
@@ -46,6 +46,18 @@ public class DEPNode extends POSNode implements Comparable<DEPNode>
 {
 	private static final long serialVersionUID = 3794720014142939766L;
 	static final String ROOT_TAG = "@#r$%";
+	/** Valencies by the number of left or right dependents up to 2, which are shared instead of being built per call. */
+	static final String[] LEFT_VALENCIES  = {StringConst.EMPTY, StringConst.LESS_THAN, StringConst.LESS_THAN + StringConst.LESS_THAN};
+	static final String[] RIGHT_VALENCIES = {StringConst.EMPTY, StringConst.GREATER_THAN, StringConst.GREATER_THAN + StringConst.GREATER_THAN};
+	/** VALENCIES[left*3 + right] = LEFT_VALENCIES[left] + "-" + RIGHT_VALENCIES[right]. */
+	static final String[] VALENCIES = new String[9];
+	
+	static
+	{
+		for (int l=0; l<3; l++)
+			for (int r=0; r<3; r++)
+				VALENCIES[l*3+r] = LEFT_VALENCIES[l] + "-" + RIGHT_VALENCIES[r];
+	}
 
 	/** The dependency label of this node. */
 	protected String dependency_label;
@@ -616,12 +628,11 @@ public class DEPNode extends POSNode implements Comparable<DEPNode>
 	 */
 	public String getValency(Direction direction)
 	{
-		String valency;
 		switch (direction)
 		{
 		case  left: return getLeftValency();
 		case  right: return getRightValency();
-		case  all: return getLeftValency()+"-"+getRightValency();
+		case  all: return VALENCIES[getLeftValencySize() * 3 + getRightValencySize()];
 		default: return null;
 		}
 	}
@@ -632,17 +643,7 @@ public class DEPNode extends POSNode implements Comparable<DEPNode>
 	 */
 	public String getLeftValency()
 	{
-		StringBuilder build = new StringBuilder();
-		
-		if (getLeftMostDependent() != null)
-		{
-			build.append(StringConst.LESS_THAN);
-			
-			if (getLeftMostDependent(1) != null)
-				build.append(StringConst.LESS_THAN);
-		}
-		
-		return build.toString();
+		return LEFT_VALENCIES[getLeftValencySize()];
 	}
 	
 	/**
@@ -651,17 +652,21 @@ public class DEPNode extends POSNode implements Comparable<DEPNode>
 	 */
 	public String getRightValency()
 	{
-		StringBuilder build = new StringBuilder();
-		
-		if (getRightMostDependent() != null)
-		{
-			build.append(StringConst.GREATER_THAN);
-			
-			if (getRightMostDependent(1) != null)
-				build.append(StringConst.GREATER_THAN);
-		}
-		
-		return build.toString();
+		return RIGHT_VALENCIES[getRightValencySize()];
+	}
+	
+	/** @return the number of left dependents up to 2. */
+	private int getLeftValencySize()
+	{
+		if (getLeftMostDependent() == null) return 0;
+		return (getLeftMostDependent(1) == null) ? 1 : 2;
+	}
+	
+	/** @return the number of right dependents up to 2. */
+	private int getRightValencySize()
+	{
+		if (getRightMostDependent() == null) return 0;
+		return (getRightMostDependent(1) == null) ? 1 : 2;
 	}
 	
 	/**
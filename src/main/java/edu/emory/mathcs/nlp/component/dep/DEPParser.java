@@ -18,14 +18,17 @@ package edu.emory.mathcs.nlp.component.dep;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
-import edu.emory.mathcs.nlp.common.collection.tuple.Pair;
 import edu.emory.mathcs.nlp.component.util.NLPComponent;
 import edu.emory.mathcs.nlp.learn.model.StringModel;
-import edu.emory.mathcs.nlp.learn.util.Prediction;
+import edu.emory.mathcs.nlp.learn.util.PredictionContext;
 import edu.emory.mathcs.nlp.learn.util.StringInstance;
 import edu.emory.mathcs.nlp.learn.util.StringPrediction;
 import edu.emory.mathcs.nlp.learn.vector.StringVector;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
@@ -33,6 +36,10 @@ import edu.emory.mathcs.nlp.learn.vector.StringVector;
 public class DEPParser<N extends DEPNode> extends NLPComponent<N,DEPState<N>>
 {
 	private static final long serialVersionUID = 7031031976396726276L;
+	/** The number of hypotheses kept by the beam search; the decoding is greedy if this is less than or equal to 1. */
+	private transient int beam_size;
+	/** The indices of the labels of the model whose transitions are in each mask (see {@link #getLegalLabels(int)}). */
+	private transient volatile LegalLabels legal_labels;
 
 	public DEPParser(StringModel model)
 	{
@@ -47,6 +54,18 @@ public class DEPParser<N extends DEPNode> extends NLPComponent<N,DEPState<N>>
 	@Override
 	protected void writeLexicons(ObjectOutputStream out) throws IOException {}
 	
+//	============================== BEAM SEARCH ==============================
+	
+	public int getBeamSize()
+	{
+		return beam_size;
+	}
+	
+	public void setBeamSize(int size)
+	{
+		beam_size = size;
+	}
+	
 //	============================== PROCESS ==============================
 	
 	@Override
@@ -55,19 +74,272 @@ public class DEPParser<N extends DEPNode> extends NLPComponent<N,DEPState<N>>
 		return new DEPState<>(nodes);
 	}
 
+	/**
+	 * @return the best prediction among the labels whose transitions are legal in the state (see {@link DEPState#getLegalTransitions()}),
+	 * where only the legal labels are scored, and the model is not called if {@link DEPState#SHIFT} is the only legal transition.
+	 */
 	@Override
-	protected StringPrediction getModelPrediction(DEPState<N> state, StringVector vector)
+	protected StringPrediction getModelPrediction(DEPState<N> state, StringVector vector, PredictionContext context)
 	{
-		return models[0].predictBest(vector);
+		StringPrediction p = context.getStringPrediction();
+		int legal = state.getLegalTransitions();
+		
+		if (legal == DEPState.SHIFT_MASK)
+		{
+			p.set(DEPState.SHIFT, 1);
+			return p;
+		}
+		
+		if (models[0].isUsingNeuralNetwork())
+			return models[0].predictBest(vector, context);
+		
+		int[] labels = getLegalLabels(legal);
+		float[] scores = models[0].scores(vector, labels, context);
+		int best = -1;
+		
+		for (int label : labels)
+			if (best < 0 || scores[best] < scores[label]) best = label;
+		
+		if (best < 0) p.set(DEPState.SHIFT, 0);
+		else          p.set(models[0].getLabel(best), scores[best]);
+		return p;
 	}
-	@Override
-	protected Pair<Prediction,Prediction> getModelPredictionBranching(DEPState<N> state, StringVector vector){
-		return models[0].predictBestBranching(vector);
+	
+	/**
+	 * @return the indices of the labels of the model whose transitions are in the mask (see {@link DEPState#getTransitionMask(String)}),
+	 * which are rebuilt whenever the labels get re-indexed or added (see {@link StringModel#getLabelList()}).
+	 * The arrays are never modified once built, so threads racing on the rebuild get equal arrays.
+	 */
+	private int[] getLegalLabels(int mask)
+	{
+		LegalLabels legal = legal_labels;
+		List<String> list = models[0].getLabelList();
+		
+		if (legal == null || legal.list != list || legal.size != list.size())
+			legal_labels = legal = new LegalLabels(list);
+		
+		return legal.labels[mask];
 	}
 	
+	/** Decodes the state and sets its arcs to the nodes (see {@link DEPState#materialize()}). */
 	@Override
-	protected StringPrediction getLabelFromPrediciton(Prediction prediction) {
-		return models[0].getLabelFromPrediciton(prediction);
+	protected DEPState<N> decode(DEPState<N> state, PredictionContext context)
+	{
+		state = (beam_size > 1 && !models[0].isUsingNeuralNetwork()) ? decodeBeam(state, context) : super.decode(state, context);
+		state.materialize();
+		return state;
+	}
+	
+	/**
+	 * Keeps the {@link #beam_size} best hypotheses by their sums of log-probabilities of transitions, which takes at most beam * 2n transitions.
+	 * Each hypothesis has its own state; a state is forked only when more than one of its successors survive (see {@link DEPState#DEPState(DEPState)}),
+	 * so each step applies one transition per hypothesis and makes at most beam - 1 forks.
+	 * @return the state of the best hypothesis, whose {@link DEPState#getScore()} is the score of the hypothesis.
+	 */
+	protected DEPState<N> decodeBeam(DEPState<N> state, PredictionContext context)
+	{
+		List<Hypothesis<N>> beam = new ArrayList<>(), candidates = new ArrayList<>(), t;
+		Batch<N> batch = new Batch<>(beam_size, models[0].getLabelSize());
+		beam.add(new Hypothesis<>(state, 0));
+		
+		while (expand(beam, candidates, batch, context))
+		{
+			Collections.sort(candidates);
+			if (candidates.size() > beam_size) candidates.subList(beam_size, candidates.size()).clear();
+			advance(candidates);
+			t = beam; beam = candidates; candidates = t;
+		}
+		
+		Hypothesis<N> best = beam.get(0);
+		best.state.totalScore = best.score;
+		return best.state;
+	}
+	
+	/**
+	 * Adds the terminated hypotheses of the beam and the successors of the others to the candidates,
+	 * where the hypotheses with more than one legal transition are scored together in one batch.
+	 * @return true if any hypothesis has been expanded.
+	 */
+	private boolean expand(List<Hypothesis<N>> beam, List<Hypothesis<N>> candidates, Batch<N> batch, PredictionContext context)
+	{
+		boolean expanded = false;
+		int legal, i;
+		candidates.clear();
+		batch.size = 0;
+		
+		for (Hypothesis<N> h : beam)
+		{
+			if (h.state.isTerminate())
+			{
+				candidates.add(h);
+				continue;
+			}
+			
+			expanded = true;
+			legal = h.state.getLegalTransitions();
+			
+			if (legal == DEPState.SHIFT_MASK)
+				candidates.add(new Hypothesis<>(h, DEPState.SHIFT, h.score));
+			else
+			{
+				batch.hypotheses[batch.size] = h;
+				batch.labels  [batch.size] = getLegalLabels(legal);
+				batch.vectors [batch.size] = extractFeatures(h.state);
+				batch.size++;
+			}
+		}
+		
+		models[0].scores(batch.vectors, batch.labels, batch.scores, batch.size, context);
+		
+		for (i=0; i<batch.size; i++)
+			addSuccessors(batch.hypotheses[i], batch.labels[i], batch.scores[i], candidates);
+		
+		return expanded;
+	}
+	
+	/**
+	 * Adds the successors of the best {@link #beam_size} legal transitions of the hypothesis to the candidates,
+	 * whose scores are normalized over the legal transitions only.
+	 */
+	private void addSuccessors(Hypothesis<N> h, int[] labels, float[] scores, List<Hypothesis<N>> candidates)
+	{
+		int best, count;
+		
+		// log-probabilities for regression
+		if (models[0].getWeightVector().isRegression())
+			for (int label : labels) scores[label] = (float)Math.log(scores[label]);
+		
+		double logZ = logSumExp(scores, labels);
+		
+		for (count=0; count<beam_size; count++)
+		{
+			best = -1;
+			
+			for (int label : labels)
+				if (best < 0 || scores[best] < scores[label]) best = label;
+			
+			if (best < 0 || scores[best] == Float.NEGATIVE_INFINITY) break;
+			candidates.add(new Hypothesis<>(h, models[0].getLabel(best), h.score + scores[best] - logZ));
+			scores[best] = Float.NEGATIVE_INFINITY;
+		}
+		
+		if (count == 0) candidates.add(new Hypothesis<>(h, DEPState.SHIFT, h.score));
+	}
+	
+	/**
+	 * Gives each new hypothesis its state by applying its transition to the state of its parent.
+	 * The last successor of a parent takes over the parent's state; the others fork it beforehand.
+	 */
+	private void advance(List<Hypothesis<N>> candidates)
+	{
+		for (Hypothesis<N> h : candidates)
+			if (h.parent != null) h.parent.successors++;
+		
+		for (Hypothesis<N> h : candidates)
+		{
+			if (h.parent == null) continue;
+			h.state = (--h.parent.successors > 0) ? new DEPState<>(h.parent.state) : h.parent.state;
+			h.state.next(h.label);
+			h.parent = null;
+		}
+	}
+	
+	/** @return log(sum(exp(scores[label]))) for all the labels. */
+	static private double logSumExp(float[] scores, int[] labels)
+	{
+		float max = Float.NEGATIVE_INFINITY;
+		double sum = 0;
+		
+		for (int label : labels)
+			max = Math.max(max, scores[label]);
+		
+		if (max == Float.NEGATIVE_INFINITY) return max;
+		
+		for (int label : labels)
+			sum += Math.exp(scores[label] - max);
+		
+		return max + Math.log(sum);
+	}
+	
+	/** The indices of the labels whose transitions are in each mask, built from a snapshot of the label list of the model. */
+	static private class LegalLabels
+	{
+		/** The label list of the model, compared by identity. */
+		final List<String> list;
+		final int size;
+		/** labels[mask] = the indices of the labels whose transitions are in the mask. */
+		final int[][] labels;
+		
+		LegalLabels(List<String> list)
+		{
+			this.list = list;
+			size   = list.size();
+			labels = new int[DEPState.RIGHT_ARC_MASK << 1][];
+			int[] masks = new int[size];
+			IntArrayList indices = new IntArrayList();
+			int i, m;
+			
+			for (i=0; i<size; i++)
+				masks[i] = DEPState.getTransitionMask(list.get(i));
+			
+			for (m=0; m<labels.length; m++)
+			{
+				indices.clear();
+				for (i=0; i<size; i++) if ((masks[i] & m) != 0) indices.add(i);
+				labels[m] = indices.toIntArray();
+			}
+		}
+	}
+	
+	/** A sequence of transitions with its own state; a new hypothesis keeps its parent and transition until {@link DEPParser#advance(List)} gives it a state. */
+	static private class Hypothesis<N extends DEPNode> implements Comparable<Hypothesis<N>>
+	{
+		DEPState<N>   state;
+		Hypothesis<N> parent;
+		/** The legal transition taken from the parent. */
+		String        label;
+		double        score;
+		/** The number of successors of this hypothesis that have not got their states. */
+		int           successors;
+		
+		Hypothesis(DEPState<N> state, double score)
+		{
+			this.state = state;
+			this.score = score;
+		}
+		
+		Hypothesis(Hypothesis<N> parent, String label, double score)
+		{
+			this.parent = parent;
+			this.label  = label;
+			this.score  = score;
+		}
+		
+		/** Sorts in descending order of scores. */
+		@Override
+		public int compareTo(Hypothesis<N> o)
+		{
+			return Double.compare(o.score, score);
+		}
+	}
+	
+	/** Buffers of the hypotheses scored together in one step of {@link DEPParser#decodeBeam(DEPState, PredictionContext)}. */
+	static private class Batch<N extends DEPNode>
+	{
+		Hypothesis<N>[] hypotheses;
+		StringVector[]  vectors;
+		int[][]         labels;
+		float[][]       scores;
+		int             size;
+		
+		@SuppressWarnings("unchecked")
+		Batch(int beamSize, int labelSize)
+		{
+			hypotheses = new Hypothesis[beamSize];
+			vectors    = new StringVector[beamSize];
+			labels     = new int[beamSize][];
+			scores     = new float[beamSize][labelSize];
+		}
 	}
 	
 	@Override
@@ -15,9 +15,13 @@
  */
 package edu.emory.mathcs.nlp.component.dep;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import edu.emory.mathcs.nlp.component.util.eval.Eval;
+import edu.emory.mathcs.nlp.component.util.feature.Direction;
+import edu.emory.mathcs.nlp.component.util.feature.Field;
 import edu.emory.mathcs.nlp.component.util.state.NLPState;
 import edu.emory.mathcs.nlp.learn.util.StringPrediction;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
@@ -32,32 +36,62 @@ public class DEPState<N extends DEPNode> extends NLPState<N>
 	static public final String SHIFT     = "S";
 	static public final String REDUCE    = "R";
 	
+	/** The bits of the transition groups in {@link #getLegalTransitions()}. */
+	static public final int SHIFT_MASK     = 1;
+	static public final int REDUCE_MASK    = 2;
+	static public final int LEFT_ARC_MASK  = 4;
+	static public final int RIGHT_ARC_MASK = 8;
+	
 	private DEPArc[]     oracle;
 	private IntArrayList stack;
 	private int          input;
+	/** The bitmask of {@link #getLegalTransitions()} for the current step if computed; otherwise, -1. */
+	private int          legal_transitions;
+	/** The heads and the dependents of the nodes in this state. */
+	private DEPTree      tree;
+	/** labels[i] = the dependency label of the i'th node if exists; otherwise, null. */
+	private String[]     labels;
+	private DEPFeatureCache feature_cache;
+	private DEPFeatureMemo  feature_memo;
+	/** The undo log of {@link #next(String)}, which takes 3 entries per transition (see {@link #log(int, int)}). */
+	private IntArrayList history;
+	/** The previous labels of the dependents logged in {@link #history}. */
+	private List<String> label_history;
 	
 	public DEPState(N[] nodes)
 	{
 		super(nodes);
+		feature_cache = new DEPFeatureCache(nodes);
 		stack = new IntArrayList();
+		tree = new DEPTree(nodes.length);
+		labels = new String[nodes.length];
+		history = new IntArrayList();
+		label_history = new ArrayList<>();
 		input = 0;
 		totalScore = 0;
+		legal_transitions = -1;
 		shift();
 	}
 	
-	public DEPState(DEPState other) {
-		super((N[]) other.nodes);
-		this.stack = new IntArrayList(other.stack);
-		this.input = other.input;
-		for(int i = 0; i < other.oracle.length; i++)
-		{
-			this.oracle[i] = other.oracle[i].copy(other.oracle[i].getNode());
-			
-		}
-		this.oracle = Arrays.copyOf(other.oracle, other.oracle.length);
-		this.totalScore = other.totalScore;
+	/**
+	 * Forks the state, which shares the nodes, the oracle, and the token features with the other state
+	 * but copies the stack, the arcs, and the history so that both states can move independently.
+	 */
+	public DEPState(DEPState<N> state)
+	{
+		super(state.nodes);
+		oracle = state.oracle;
+		feature_cache = state.feature_cache;
+		stack = new IntArrayList(state.stack);
+		input = state.input;
+		legal_transitions = state.legal_transitions;
+		tree = new DEPTree(state.tree);
+		labels = state.labels.clone();
+		history = new IntArrayList(state.history);
+		label_history = new ArrayList<>(state.label_history);
+		totalScore = state.totalScore;
 	}
-
+	
 	@Override
 	public double addToScore(double score)
 	{
@@ -73,10 +107,11 @@ public class DEPState<N extends DEPNode> extends NLPState<N>
 	
 //	====================================== ORACLE ======================================
 
+	/** Saves the gold-standard arcs of the nodes, which are not cleared since this state keeps its own arcs (see {@link #materialize()}). */
 	@Override
 	public void saveOracle()
 	{
-		oracle = Arrays.stream(nodes).map(n -> n.clearDependencies()).toArray(DEPArc[]::new);
+		oracle = Arrays.stream(nodes).map(n -> new DEPArc(n.getHead(), n.getLabel())).toArray(DEPArc[]::new);
 	}
 	
 	@Override
@@ -103,7 +138,7 @@ public class DEPState<N extends DEPNode> extends NLPState<N>
 	
 	private boolean isOracleReduce()
 	{
-		if (!getStack().hasHead()) return false;
+		if (tree.getHead(stack.topInt()) < 0) return false;
 		int s;
 		
 		for (int i=1; i<stack.size(); i++)
@@ -119,8 +154,8 @@ public class DEPState<N extends DEPNode> extends NLPState<N>
 	
 	boolean isOracleReduceEager()
 	{
+		if (tree.getHead(stack.topInt()) < 0) return false;
 		DEPNode s = getStack();
-		if (!s.hasHead()) return false;
 		
 		for (int i=input+1; i<nodes.length; i++)
 		{
@@ -136,44 +171,129 @@ public class DEPState<N extends DEPNode> extends NLPState<N>
 	@Override
 	public void next(StringPrediction prediction)
 	{
-		String label = prediction.getLabel();
-//		System.out.println(label+" "+stack.toString()+" "+input);
+		next(prediction.getLabel());
+	}
+	
+	/** Applies the transition resolved by {@link #resolve(String)} and logs it so that it can be reverted by {@link #undo()}. */
+	public void next(String label)
+	{
+		label = resolve(label);
+		int s = stack.topInt();
+		legal_transitions = -1;
 		
 		if (label.startsWith(LEFT_ARC))
 		{
-			DEPNode s = getStack();
-			DEPNode i = getInput();
-			
-			if (s != nodes[0] && !i.isDescendantOf(s))
-			{
-				s.setHead(i, label.substring(3));
-				label = REDUCE;
-				//retrain????
-			}
-			else
-				label = SHIFT;
+			log(~s, s);
+			setHead(s, input, label.substring(3));
+			reduce();
 		}
 		else if (label.startsWith(RIGHT_ARC))
 		{
-			DEPNode s = getStack();
-			DEPNode i = getInput();
-			
-			if (!s.isDescendantOf(i))
-				i.setHead(s, label.substring(3));
-
-			label = SHIFT;
+			log(input, input);
+			setHead(input, s, label.substring(3));
+			shift();
 		}
 		else if (label.equals(REDUCE))
 		{
-			if (stack.size() == 1)
-				label = SHIFT;
+			log(~s, -1);
+			reduce();
 		}
+		else
+		{
+			log(input, -1);
+			shift();
+		}
+	}
+	
+	/**
+	 * @return the transition that {@link #next(String)} actually applies for the label:
+	 * a transition not in {@link #getLegalTransitions()} becomes {@link #SHIFT}.
+	 */
+	public String resolve(String label)
+	{
+		int mask = getTransitionMask(label);
+		return (mask != SHIFT_MASK && (getLegalTransitions() & mask) != 0) ? label : SHIFT;
+	}
+	
+	/**
+	 * @return the bitmask of the transition groups that can be applied to this state, which is computed once per step:
+	 * {@link #SHIFT_MASK} always, {@link #REDUCE_MASK} unless the stack has the root only,
+	 * {@link #LEFT_ARC_MASK} unless the stack is the root or an ancestor of the input,
+	 * and {@link #RIGHT_ARC_MASK} unless the input is an ancestor of the stack (see {@link DEPTree#isDescendantOf(int, int)}).
+	 */
+	public int getLegalTransitions()
+	{
+		if (legal_transitions < 0)
+		{
+			int s = stack.topInt(), mask = SHIFT_MASK;
+			
+			if (stack.size() > 1) mask |= REDUCE_MASK;
+			if (s != 0 && !tree.isDescendantOf(input, s)) mask |= LEFT_ARC_MASK;
+			if (!tree.isDescendantOf(s, input)) mask |= RIGHT_ARC_MASK;
+			legal_transitions = mask;
+		}
+		
+		return legal_transitions;
+	}
+	
+	/** @return the bit of the transition group of the label in {@link #getLegalTransitions()}. */
+	static public int getTransitionMask(String label)
+	{
+		if (label.startsWith(LEFT_ARC))  return LEFT_ARC_MASK;
+		if (label.startsWith(RIGHT_ARC)) return RIGHT_ARC_MASK;
+		if (label.equals(REDUCE))        return REDUCE_MASK;
+		return SHIFT_MASK;
+	}
+	
+	/**
+	 * Logs a transition before it is applied.
+	 * @param index the input index to be shifted, or the bitwise complement of the stack index to be reduced.
+	 * @param dependent the ID of the dependent of the arc to be added if any; otherwise, -1.
+	 */
+	private void log(int index, int dependent)
+	{
+		history.add(index);
+		history.add(dependent);
+		history.add(dependent < 0 ? -1 : tree.getHead(dependent));
+		label_history.add(dependent < 0 ? null : labels[dependent]);
+	}
+	
+	/** Reverts the last transition applied by {@link #next(String)}, including its arc. */
+	public void undo()
+	{
+		int size = history.size();
+		int index     = history.getInt(size-3);
+		int dependent = history.getInt(size-2);
+		int head      = history.getInt(size-1);
+		String label  = label_history.remove(label_history.size()-1);
+		history.size(size-3);
+		legal_transitions = -1;
 		
-		switch (label)
+		if (index >= 0)
 		{
-		case SHIFT : shift();  break;
-		case REDUCE: reduce(); break;
+			stack.popInt();
+			input--;
 		}
+		else
+			stack.push(~index);
+		
+		if (dependent >= 0)
+			setHead(dependent, head, label);
+	}
+	
+	/** @return the number of transitions that can be reverted by {@link #undo()}. */
+	public int getHistorySize()
+	{
+		return label_history.size();
+	}
+	
+	/** Sets the head (-1 for none) and the label of the dependent, and invalidates the memoized features around its previous and new arcs. */
+	private void setHead(int dependent, int head, String label)
+	{
+		if (feature_memo != null && tree.getHead(dependent) >= 0) feature_memo.addArc(tree, tree.getHead(dependent), dependent);
+		tree.setHead(dependent, head);
+		labels[dependent] = label;
+		if (feature_memo != null && head >= 0) feature_memo.addArc(tree, head, dependent);
 	}
 	
 	public void shift()
@@ -227,24 +347,179 @@ public class DEPState<N extends DEPNode> extends NLPState<N>
 		return getInput(0);
 	}
 	
+	/** Sets the heads and the labels of this state to the nodes, which are not touched while parsing. */
+	public void materialize()
+	{
+		for (int i=1; i<nodes.length; i++)
+			nodes[i].setHead(getNode(tree.getHead(i)), labels[i]);
+	}
+	
+//	====================================== TREE ======================================
+	
+	/** @return the node whose ID is the specific ID if exists; otherwise, null. */
+	private N getNode(int id)
+	{
+		return (id < 0) ? null : nodes[id];
+	}
+	
+	/** @return the index of the arcs in this state. */
+	public DEPTree getTree()
+	{
+		return tree;
+	}
+	
+	/** @return the dependency head of the node in this state if exists; otherwise, null. */
+	public N getHead(DEPNode node)
+	{
+		return getNode(tree.getHead(node.getID()));
+	}
+	
+	/** @return the dependency grand-head of the node in this state if exists; otherwise, null. */
+	public N getGrandHead(DEPNode node)
+	{
+		int head = tree.getHead(node.getID());
+		return (head < 0) ? null : getNode(tree.getHead(head));
+	}
+	
+	/** @return the dependency label of the node in this state if exists; otherwise, null. */
+	public String getLabel(DEPNode node)
+	{
+		return labels[node.getID()];
+	}
+	
+	public boolean hasHead(DEPNode node)
+	{
+		return tree.getHead(node.getID()) >= 0;
+	}
+	
+	/** Equivalent to {@link DEPNode#getLeftMostDependent(int)} in this state. */
+	public N getLeftMostDependent(DEPNode node, int order)
+	{
+		return getNode(tree.getLeftMostDependent(node.getID(), order));
+	}
+	
+	/** Equivalent to {@link DEPNode#getRightMostDependent(int)} in this state. */
+	public N getRightMostDependent(DEPNode node, int order)
+	{
+		return getNode(tree.getRightMostDependent(node.getID(), order));
+	}
+	
+	/** Equivalent to {@link DEPNode#getLeftNearestDependent(int)} in this state. */
+	public N getLeftNearestDependent(DEPNode node, int order)
+	{
+		return getNode(tree.getLeftNearestDependent(node.getID(), order));
+	}
+	
+	/** Equivalent to {@link DEPNode#getRightNearestDependent(int)} in this state. */
+	public N getRightNearestDependent(DEPNode node, int order)
+	{
+		return getNode(tree.getRightNearestDependent(node.getID(), order));
+	}
+	
+	/** Equivalent to {@link DEPNode#getLeftNearestSibling(int)} in this state. */
+	public N getLeftNearestSibling(DEPNode node, int order)
+	{
+		return getNode(tree.getLeftNearestSibling(node.getID(), order));
+	}
+	
+	/** Equivalent to {@link DEPNode#getRightNearestSibling(int)} in this state. */
+	public N getRightNearestSibling(DEPNode node, int order)
+	{
+		return getNode(tree.getRightNearestSibling(node.getID(), order));
+	}
+	
+	/** Equivalent to {@link DEPNode#getValency(Direction)} in this state. */
+	public String getValency(DEPNode node, Direction direction)
+	{
+		switch (direction)
+		{
+		case left : return DEPNode.LEFT_VALENCIES [getValencySize(node, true)];
+		case right: return DEPNode.RIGHT_VALENCIES[getValencySize(node, false)];
+		case all  : return DEPNode.VALENCIES[getValencySize(node, true) * 3 + getValencySize(node, false)];
+		default   : return null;
+		}
+	}
+	
+	/** @return the number of left or right dependents of the node up to 2. */
+	private int getValencySize(DEPNode node, boolean left)
+	{
+		int id = node.getID();
+		if ((left ? tree.getLeftMostDependent(id, 0) : tree.getRightMostDependent(id, 0)) < 0) return 0;
+		return ((left ? tree.getLeftMostDependent(id, 1) : tree.getRightMostDependent(id, 1)) < 0) ? 1 : 2;
+	}
+	
+	/** @return true if the node is a descendant of the ancestor in this state. */
+	public boolean isDescendantOf(DEPNode node, DEPNode ancestor)
+	{
+		return tree.isDescendantOf(node.getID(), ancestor.getID());
+	}
+	
+	/** @return the ancestors of the node from its head to the top of its tree in this state. */
+	public List<N> getAncestorList(DEPNode node)
+	{
+		int id = node.getID();
+		List<N> list = new ArrayList<>(tree.getDepth(id));
+		
+		for (int head=tree.getHead(id); head >= 0; head=tree.getHead(head))
+			list.add(nodes[head]);
+		
+		return list;
+	}
+	
+	/** Equivalent to {@link DEPNode#getLowestCommonAncestor(DEPNode)} in this state. */
+	public N getLowestCommonAncestor(DEPNode node1, DEPNode node2)
+	{
+		return getNode(tree.getLowestCommonAncestor(node1.getID(), node2.getID()));
+	}
+	
+	/** Equivalent to {@link DEPNode#getPath(DEPNode, Field)} in this state, where the field is {@link Field#dependency_label}. */
+	public String getPath(DEPNode node1, DEPNode node2)
+	{
+		if (node1 == node2) return getLabel(node1);
+		int lca = tree.getLowestCommonAncestor(node1.getID(), node2.getID());
+		
+		if (lca < 0) return null;
+		if (lca == node2.getID()) return getPath(lca, node1.getID(), "^");
+		if (lca == node1.getID()) return getPath(lca, node2.getID(), "|");
+		return getPath(lca, node1.getID(), "^") + getPath(lca, node2.getID(), "|");
+	}
+	
+	/** @return the labels from the bottom node up to the top node (exclusive) delimited by the delimiter if exists; otherwise, null. */
+	private String getPath(int top, int bottom, String delim)
+	{
+		StringBuilder build = new StringBuilder();
+		
+		do
+		{
+			if (labels[bottom] != null)
+			{
+				build.append(delim);
+				build.append(labels[bottom]);
+			}
+			
+			bottom = tree.getHead(bottom);
+		}
+		while (bottom != top && bottom >= 0);
+		
+		return build.length() == 0 ? null : build.toString();
+	}
+	
 //	====================================== EVALUATE ======================================
 
 	@Override
 	public void evaluate(Eval eval)
 	{
 		int las = 0, uas = 0;
-		DEPNode node;
-		DEPArc  gold;
+		DEPArc gold;
 		
 		for (int i=1; i<nodes.length; i++)
 		{
-			node = nodes [i];
 			gold = oracle[i];
 			
-			if (gold.isNode(node.getHead()))
+			if (gold.isNode(getHead(nodes[i])))
 			{
 				uas++;
-				if (gold.isLabel(node.getLabel())) las++;
+				if (gold.isLabel(labels[i])) las++;
 			}
 		}
 
@@ -253,6 +528,19 @@ public class DEPState<N extends DEPNode> extends NLPState<N>
 	
 //	============================== UTILITIES ==============================
 	
+	/** @return the token features of this sentence. */
+	public DEPFeatureCache getFeatureCache()
+	{
+		return feature_cache;
+	}
+	
+	/** @return the memoized feature values of this state. */
+	public DEPFeatureMemo getFeatureMemo(int slotSize)
+	{
+		if (feature_memo == null) feature_memo = new DEPFeatureMemo(slotSize, nodes.length);
+		return feature_memo;
+	}
+	
 	public boolean isFirst(N node)
 	{
 		return nodes[1] == node;
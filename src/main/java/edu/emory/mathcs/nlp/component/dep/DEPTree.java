@@ -0,0 +1,271 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.dep;
+
+import java.util.Arrays;
+
+/**
+ * An index of the dependency arcs of a sentence by node ID, which keeps the dependents of each node in ascending order
+ * as a doubly-linked list of siblings, and the depth and the root of each node in its (partial) tree, all updated as arcs are added.
+ * The depths and the roots make {@link #isDescendantOf(int, int)} cheap at the cost of rewriting the subtree of the dependent on every arc,
+ * so each node is rewritten once per arc added above it; a union-find would not do as arcs get removed when heads are replaced or undone.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DEPTree
+{
+	/** heads[i] = the ID of the head of the i'th node if exists; otherwise, -1. */
+	private int[] heads;
+	/** first_dependents[i] = the ID of the leftmost dependent of the i'th node if exists; otherwise, -1. */
+	private int[] first_dependents;
+	/** last_dependents[i] = the ID of the rightmost dependent of the i'th node if exists; otherwise, -1. */
+	private int[] last_dependents;
+	/** next_siblings[i] = the ID of the right-nearest sibling of the i'th node if exists; otherwise, -1. */
+	private int[] next_siblings;
+	/** prev_siblings[i] = the ID of the left-nearest sibling of the i'th node if exists; otherwise, -1. */
+	private int[] prev_siblings;
+	/** depths[i] = the number of arcs from the i'th node to the top of its tree. */
+	private int[] depths;
+	/** roots[i] = the ID of the top of the tree containing the i'th node, which is i itself if the node has no head. */
+	private int[] roots;
+	
+	public DEPTree(int size)
+	{
+		heads            = new int[size];
+		first_dependents = new int[size];
+		last_dependents  = new int[size];
+		next_siblings    = new int[size];
+		prev_siblings    = new int[size];
+		depths           = new int[size];
+		roots            = new int[size];
+		
+		Arrays.fill(heads           , -1);
+		Arrays.fill(first_dependents, -1);
+		Arrays.fill(last_dependents , -1);
+		Arrays.fill(next_siblings   , -1);
+		Arrays.fill(prev_siblings   , -1);
+		for (int i=0; i<size; i++) roots[i] = i;
+	}
+	
+	public DEPTree(DEPTree tree)
+	{
+		heads            = tree.heads.clone();
+		first_dependents = tree.first_dependents.clone();
+		last_dependents  = tree.last_dependents.clone();
+		next_siblings    = tree.next_siblings.clone();
+		prev_siblings    = tree.prev_siblings.clone();
+		depths           = tree.depths.clone();
+		roots            = tree.roots.clone();
+	}
+	
+//	====================================== SETTERS ======================================
+
+	/** Sets the head of the dependent (-1 to remove its head), which takes O(dependents of the head + descendants of the dependent) to update their depths and roots. */
+	public void setHead(int dependent, int head)
+	{
+		if (heads[dependent] >= 0) remove(dependent);
+		heads[dependent] = head;
+		if (head >= 0) insert(dependent, head);
+		if (head < 0) setTop(dependent, 0, dependent);
+		else          setTop(dependent, depths[head] + 1, roots[head]);
+	}
+	
+	/** Removes the dependent from the sibling list of its head. */
+	private void remove(int dependent)
+	{
+		int head = heads[dependent], prev = prev_siblings[dependent], next = next_siblings[dependent];
+		
+		if (prev < 0) first_dependents[head] = next;
+		else          next_siblings   [prev] = next;
+		
+		if (next < 0) last_dependents[head] = prev;
+		else          prev_siblings  [next] = prev;
+		
+		prev_siblings[dependent] = next_siblings[dependent] = -1;
+	}
+	
+	/** Inserts the dependent to the sibling list of the head in ascending order, which is O(1) for transition-based parsing where new dependents are either the leftmost or the rightmost. */
+	private void insert(int dependent, int head)
+	{
+		int prev = last_dependents[head], next = -1;
+		
+		while (prev > dependent)
+		{
+			next = prev;
+			prev = prev_siblings[prev];
+		}
+		
+		prev_siblings[dependent] = prev;
+		next_siblings[dependent] = next;
+		
+		if (prev < 0) first_dependents[head] = dependent;
+		else          next_siblings   [prev] = dependent;
+		
+		if (next < 0) last_dependents[head] = dependent;
+		else          prev_siblings  [next] = dependent;
+	}
+	
+	/** Sets the depth and the root of the node and its descendants by walking the subtree in preorder without recursion. */
+	private void setTop(int top, int depth, int root)
+	{
+		int id = top;
+		
+		while (true)
+		{
+			depths[id] = depth;
+			roots [id] = root;
+			
+			if (first_dependents[id] >= 0)
+			{
+				id = first_dependents[id];
+				depth++;
+				continue;
+			}
+			
+			while (id != top && next_siblings[id] < 0)
+			{
+				id = heads[id];
+				depth--;
+			}
+			
+			if (id == top) return;
+			id = next_siblings[id];
+		}
+	}
+	
+//	====================================== GETTERS ======================================
+	
+	public int size()
+	{
+		return heads.length;
+	}
+	
+	/** @return the ID of the head of the node if exists; otherwise, -1. */
+	public int getHead(int id)
+	{
+		return heads[id];
+	}
+	
+	/** @return the ID of the top of the tree containing the node, which is the node itself if it has no head. */
+	public int getRoot(int id)
+	{
+		return roots[id];
+	}
+	
+	/** @return the ID of the leftmost dependent of the node if exists; otherwise, -1. */
+	public int getFirstDependent(int id)
+	{
+		return first_dependents[id];
+	}
+	
+	/** @return the ID of the rightmost dependent of the node if exists; otherwise, -1. */
+	public int getLastDependent(int id)
+	{
+		return last_dependents[id];
+	}
+	
+	/** @return the ID of the right-nearest sibling of the node if exists; otherwise, -1. */
+	public int getNextSibling(int id)
+	{
+		return next_siblings[id];
+	}
+	
+	/** @return the ID of the left-nearest sibling of the node if exists; otherwise, -1. */
+	public int getPrevSibling(int id)
+	{
+		return prev_siblings[id];
+	}
+	
+	/** @return the number of arcs from the node to the top of its tree. */
+	public int getDepth(int id)
+	{
+		return depths[id];
+	}
+	
+	/** @return the ID of the order'th leftmost dependent of the node if it is on the left-hand side of the node; otherwise, -1. */
+	public int getLeftMostDependent(int id, int order)
+	{
+		int dep = next(first_dependents[id], next_siblings, order);
+		return (dep < id) ? dep : -1;
+	}
+	
+	/** @return the ID of the order'th rightmost dependent of the node if it is on the right-hand side of the node; otherwise, -1. */
+	public int getRightMostDependent(int id, int order)
+	{
+		int dep = next(last_dependents[id], prev_siblings, order);
+		return (dep > id) ? dep : -1;
+	}
+	
+	/** @return the ID of the order'th left-nearest dependent of the node if exists; otherwise, -1. */
+	public int getLeftNearestDependent(int id, int order)
+	{
+		int dep = last_dependents[id];
+		while (dep > id) dep = prev_siblings[dep];
+		return next(dep, prev_siblings, order);
+	}
+	
+	/** @return the ID of the order'th right-nearest dependent of the node if exists; otherwise, -1. */
+	public int getRightNearestDependent(int id, int order)
+	{
+		int dep = first_dependents[id];
+		while (0 <= dep && dep < id) dep = next_siblings[dep];
+		return next(dep, next_siblings, order);
+	}
+	
+	/** @return the ID of the order'th left-nearest sibling of the node if exists; otherwise, -1. */
+	public int getLeftNearestSibling(int id, int order)
+	{
+		return next(prev_siblings[id], prev_siblings, order);
+	}
+	
+	/** @return the ID of the order'th right-nearest sibling of the node if exists; otherwise, -1. */
+	public int getRightNearestSibling(int id, int order)
+	{
+		return next(next_siblings[id], next_siblings, order);
+	}
+	
+	/** @return the ID reached by following the links the specific number of times from the node if exists; otherwise, -1. */
+	private int next(int id, int[] links, int count)
+	{
+		for (; id >= 0 && count > 0; count--)
+			id = links[id];
+		
+		return id;
+	}
+	
+	/** @return true if the node is a descendant of the ancestor, which takes O(1) if the ancestor has no head; otherwise, O(depth) (see {@link #setHead(int, int)} for the cost of keeping this cheap). */
+	public boolean isDescendantOf(int id, int ancestor)
+	{
+		if (roots[id] != roots[ancestor]) return false;
+		int diff = depths[id] - depths[ancestor];
+		if (diff <= 0) return false;
+		return (roots[ancestor] == ancestor) || next(id, heads, diff) == ancestor;
+	}
+	
+	/** @return the ID of the lowest common ancestor of the two nodes (inclusive) if exists; otherwise, -1, which takes O(depth). */
+	public int getLowestCommonAncestor(int id1, int id2)
+	{
+		id1 = next(id1, heads, depths[id1] - depths[id2]);
+		id2 = next(id2, heads, depths[id2] - depths[id1]);
+		
+		while (id1 != id2)
+		{
+			id1 = heads[id1];
+			id2 = heads[id2];
+		}
+		
+		return id1;
+	}
+}
@@ -38,7 +38,7 @@ public abstract class POSFeatureTemplate extends FeatureTemplate<POSNode,POSStat
 //	========================= FEATURE EXTRACTORS =========================
 	
 	@Override
-	protected String getFeature(FeatureItem<?> item)
+	protected String getFeature(POSState<POSNode> state, FeatureItem<?> item)
 	{
 		POSNode node = state.getNode(item.window);
 		if (node == null) return null;
@@ -60,15 +60,15 @@ public abstract class POSFeatureTemplate extends FeatureTemplate<POSNode,POSStat
 	}
 	
 	@Override
-	protected String[] getFeatures(FeatureItem<?> item)
+	protected String[] getFeatures(POSState<POSNode> state, FeatureItem<?> item)
 	{
 		POSNode node = state.getNode(item.window);
 		if (node == null) return null;
 		
 		switch (item.field)
 		{
-		case orthographic: return getOrthographicFeatures(node);
-		case binary: return getBinaryFeatures(node);
+		case orthographic: return getOrthographicFeatures(state, node);
+		case binary: return getBinaryFeatures(state, node);
 		default: throw new IllegalArgumentException("Unsupported feature: "+item.field);
 		}
 	}
@@ -87,13 +87,13 @@ public abstract class POSFeatureTemplate extends FeatureTemplate<POSNode,POSStat
 		return (n < s.length()) ? StringUtils.toLowerCase(s.substring(s.length()-n)) : null;
 	}
 	
-	protected String[] getOrthographicFeatures(POSNode node)
+	protected String[] getOrthographicFeatures(POSState<POSNode> state, POSNode node)
 	{
 		String[] t = node.getOrthographic(state.isFirst(node));
 		return t.length == 0 ? null : t;
 	}
 	
-	protected String[] getBinaryFeatures(POSNode node)
+	protected String[] getBinaryFeatures(POSState<POSNode> state, POSNode node)
 	{
 		String[] values = new String[2];
 		int index = 0;
@@ -21,6 +21,7 @@ import java.io.ObjectOutputStream;
 
 import edu.emory.mathcs.nlp.component.util.NLPComponent;
 import edu.emory.mathcs.nlp.learn.model.StringModel;
+import edu.emory.mathcs.nlp.learn.util.PredictionContext;
 import edu.emory.mathcs.nlp.learn.util.StringInstance;
 import edu.emory.mathcs.nlp.learn.util.StringPrediction;
 import edu.emory.mathcs.nlp.learn.vector.StringVector;
@@ -71,13 +72,13 @@ public class POSTagger<N extends POSNode> extends NLPComponent<N,POSState<N>>
 	}
 
 	@Override
-	protected StringPrediction getModelPrediction(POSState<N> state, StringVector vector)
+	protected StringPrediction getModelPrediction(POSState<N> state, StringVector vector, PredictionContext context)
 	{
 //		Prediction p = POSNeuralNetwork.nn.predictBest(models[0].toSparseVector(vector));
 //		return new StringPrediction(models[0].getLabel(p.getLabel()), p.getScore());
-		return models[0].predictBest(vector);
+		return models[0].predictBest(vector, context);
 	}
-
+	
 	@Override
 	protected void addInstance(String label, StringVector vector)
 	{
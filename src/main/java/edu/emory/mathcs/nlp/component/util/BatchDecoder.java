@@ -0,0 +1,123 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import edu.emory.mathcs.nlp.component.util.reader.TSVReader;
+import edu.emory.mathcs.nlp.component.util.state.NLPState;
+import edu.emory.mathcs.nlp.learn.util.PredictionContext;
+
+/**
+ * Decodes sentences with multiple threads sharing one component and returns the results in the input order.
+ * Each thread keeps its own {@link PredictionContext}; at most {@link #getQueueSize()} sentences are in flight,
+ * so the input is read only as fast as the results are consumed.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class BatchDecoder<N,S extends NLPState<N>>
+{
+	private ThreadLocal<PredictionContext> contexts;
+	private NLPComponent<N,S> component;
+	private int thread_size;
+	private int queue_size;
+	
+	/** Calls {@link #BatchDecoder(NLPComponent, int, int)} with the queue size of {@code 4 * threadSize}. */
+	public BatchDecoder(NLPComponent<N,S> component, int threadSize)
+	{
+		this(component, threadSize, 4 * threadSize);
+	}
+	
+	/**
+	 * @param threadSize the number of decoding threads.
+	 * @param queueSize the maximum number of sentences read but not yet consumed.
+	 */
+	public BatchDecoder(NLPComponent<N,S> component, int threadSize, int queueSize)
+	{
+		contexts       = ThreadLocal.withInitial(PredictionContext::new);
+		this.component = component;
+		thread_size    = Math.max(1, threadSize);
+		queue_size     = Math.max(thread_size, queueSize);
+	}
+	
+	public int getThreadSize()
+	{
+		return thread_size;
+	}
+	
+	public int getQueueSize()
+	{
+		return queue_size;
+	}
+	
+//	============================== DECODE ==============================
+	
+	/** Decodes all remaining sentences in the reader by {@link NLPComponent#decode(Object[], PredictionContext)}. */
+	public void decode(TSVReader<N> reader, BiConsumer<N[],S> output)
+	{
+		process(reader.iterator(), component::decode, output);
+	}
+	
+	/** Decodes all sentences in the stream by {@link NLPComponent#decode(Object[], PredictionContext)}. */
+	public void decode(Stream<N[]> stream, BiConsumer<N[],S> output)
+	{
+		process(stream.iterator(), component::decode, output);
+	}
+	
+	/**
+	 * Applies the function to each sentence in parallel and passes the sentence and its result to the output on the calling thread in the input order.
+	 * @param function takes a sentence and the context of the current thread; must not modify the shared component.
+	 * @throws IllegalStateException if the function fails or the calling thread is interrupted, in which case the interrupt flag is kept.
+	 */
+	public <T> void process(Iterator<N[]> input, BiFunction<N[],PredictionContext,T> function, BiConsumer<N[],T> output)
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(thread_size);
+		Deque<N[]>      nodesQueue  = new ArrayDeque<>(queue_size);
+		Deque<Future<T>> resultQueue = new ArrayDeque<>(queue_size);
+		
+		try
+		{
+			while (input.hasNext())
+			{
+				N[] nodes = input.next();
+				if (resultQueue.size() == queue_size) output.accept(nodesQueue.poll(), resultQueue.poll().get());
+				nodesQueue .add(nodes);
+				resultQueue.add(executor.submit(() -> function.apply(nodes, contexts.get())));
+			}
+			
+			while (!resultQueue.isEmpty())
+				output.accept(nodesQueue.poll(), resultQueue.poll().get());
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		catch (ExecutionException e) {throw new IllegalStateException(e.getCause());}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+}
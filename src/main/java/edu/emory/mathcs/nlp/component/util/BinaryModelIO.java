@@ -0,0 +1,119 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import edu.emory.mathcs.nlp.component.util.state.NLPState;
+import edu.emory.mathcs.nlp.learn.model.StringModel;
+import edu.emory.mathcs.nlp.learn.util.BinaryWriter;
+
+/**
+ * Reads and writes components in the binary model format, which is memory-mapped when read:
+ * <pre>
+ * int    magic ("NLPB"), version
+ * bytes  the component serialized with model skeletons ({@link StringModel#createSkeleton()})
+ * int    the number of models
+ * models labels, features as sorted string tables, and weights as a raw float block ({@link StringModel#writeBinary(BinaryWriter)})
+ * </pre>
+ * All numbers are little-endian and all blocks are aligned to 4 bytes.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class BinaryModelIO
+{
+	static public final int MAGIC   = 0x42504C4E;	// "NLPB" in little-endian
+	static public final int VERSION = 3;
+	
+	/** Writes the component to the file; the models of the component are temporarily replaced so the component must not be in use. */
+	static public void write(NLPComponent<?,?> component, String filename) throws IOException
+	{
+		StringModel[] models = component.getModels();
+		StringModel[] skeletons = new StringModel[models.length];
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		
+		for (int i=0; i<models.length; i++)
+			skeletons[i] = models[i].createSkeleton();
+		
+		component.setModels(skeletons);
+		
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+		{
+			out.writeObject(component);
+		}
+		finally
+		{
+			component.setModels(models);
+		}
+		
+		try (BinaryWriter out = new BinaryWriter(FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeBytes(bytes.toByteArray());
+			out.writeInt(models.length);
+			for (StringModel model : models) model.writeBinary(out);
+		}
+	}
+	
+	/**
+	 * Reads the component from the memory-mapped file.
+	 * The features are looked up from the mapped file and the weights are bulk-copied from it, so no hash map is built.
+	 */
+	@SuppressWarnings("unchecked")
+	static public <N,S extends NLPState<N>> NLPComponent<N,S> read(String filename) throws IOException, ClassNotFoundException
+	{
+		ByteBuffer in;
+		
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ))
+		{
+			in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		
+		if (in.getInt() != MAGIC) throw new IOException(filename+" is not a binary model.");
+		int version = in.getInt();
+		if (version != VERSION) throw new IOException("Unsupported binary model version: "+version);
+		NLPComponent<N,S> component;
+		
+		try (ObjectInputStream obj = new ObjectInputStream(new ByteArrayInputStream(BinaryWriter.readBytes(in))))
+		{
+			component = (NLPComponent<N,S>)obj.readObject();
+		}
+		
+		StringModel[] models = component.getModels();
+		if (in.getInt() != models.length) throw new IOException("Mismatched number of models in "+filename);
+		for (StringModel model : models) model.readBinary(in);
+		return component;
+	}
+	
+	/** @return true if the file starts with {@link #MAGIC}. */
+	static public boolean isBinary(String filename) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ))
+		{
+			ByteBuffer b = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			return channel.read(b) == Integer.BYTES && b.getInt(0) == MAGIC;
+		}
+	}
+}
@@ -19,16 +19,12 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
 
-import edu.emory.mathcs.nlp.common.collection.tuple.Pair;
-import edu.emory.mathcs.nlp.component.dep.DEPState;
-import edu.emory.mathcs.nlp.component.dep.DEPStatePrediction;
 import edu.emory.mathcs.nlp.component.util.eval.Eval;
 import edu.emory.mathcs.nlp.component.util.feature.FeatureTemplate;
 import edu.emory.mathcs.nlp.component.util.state.NLPState;
 import edu.emory.mathcs.nlp.learn.model.StringModel;
-import edu.emory.mathcs.nlp.learn.util.Prediction;
+import edu.emory.mathcs.nlp.learn.util.PredictionContext;
 import edu.emory.mathcs.nlp.learn.util.StringPrediction;
 import edu.emory.mathcs.nlp.learn.vector.StringVector;
 
@@ -42,7 +38,7 @@ public abstract class NLPComponent<N,S extends NLPState<N>> implements Serializa
 	protected StringModel[] models;
 	protected NLPFlag flag;
 	protected Eval eval;
-	private static final double SCORE_THRES = .5;
+	private transient PredictionContext prediction_context;
 	
 //	============================== CONSTRUCTORS ==============================
 	
@@ -139,12 +135,24 @@ public abstract class NLPComponent<N,S extends NLPState<N>> implements Serializa
 		this.eval = eval;
 	}
 	
+//	============================== PREDICTION CONTEXT ==============================
+	
+	/**
+	 * @return the scratch space reused by {@link #process(Object[])} on the calling thread.
+	 * Threads sharing this component should pass their own contexts to {@link #decode(Object[], PredictionContext)}.
+	 */
+	public PredictionContext getPredictionContext()
+	{
+		if (prediction_context == null) prediction_context = new PredictionContext();
+		return prediction_context;
+	}
+	
 //	============================== PROCESS ==============================
 	
 	/** @return the processing state for the input nodes. */
 	protected abstract S createState(N[] nodes);
-	/** @return the prediction made by the statistical model(s). */
-	protected abstract StringPrediction getModelPrediction(S state, StringVector vector);
+	/** @return the prediction made by the statistical model(s) using the scratch space in the context. */
+	protected abstract StringPrediction getModelPrediction(S state, StringVector vector, PredictionContext context);
 	/** Adds a training instance (label, x) to the statistical model. */
 	protected abstract void addInstance(String label, StringVector vector);
 	
@@ -155,71 +163,57 @@ public abstract class NLPComponent<N,S extends NLPState<N>> implements Serializa
 			return;
 		}
 		
-		S state = createState(nodes);
-		boolean first = true;
-		DEPStatePrediction prevPrediction = null;
-		feature_template.setState(state);
-		ArrayList<DEPStatePrediction> branchingStates = new ArrayList<DEPStatePrediction>();
-		
-		
-		while (!state.isTerminate())
-		{
-			StringVector vector = extractFeatures(state);
-			Pair<Prediction, Prediction> predictionPair = getPredictionBranching(state, vector);
-			
-			state.addToScore(predictionPair.o1.getScore());
-			
-			if (predictionPair.o1.getScore() < SCORE_THRES && !first && !isTrain()) {
-				branchingStates.add(prevPrediction);
-			}
-			prevPrediction = new DEPStatePrediction((S) new DEPState((DEPState) state), predictionPair.o2);
-			first = false;
-			StringPrediction label = getPrediction(state, vector); //you need to change this
-			state.next(label);
-		}
-		
-		if (branchingStates.size() > (state.getSentenceLength()/2)){
-			double maxScore = state.getScore();
-			for(DEPStatePrediction branchState: branchingStates) {
-				S branch = (S) branchState.getState();
-				Prediction prediction = branchState.getPrediction();
-				
-				//get label from prediction
-				StringPrediction label = getLabelFromPrediciton(prediction); 
-				
-				//pass to aux AND aux returns score
-				branch.next(label);
-				S finalState = processAux(branch);
-				double branchScore = finalState.getScore();
-				
-				//compare score to max AND set max if necessary AND sets currentState if set max
-				
-				if(branchScore > maxScore) {
-					maxScore = branchScore;
-					state = finalState;
-				}
-			}
-		}
-				
-		if (isEvaluate()) state.evaluate(eval);
+		decode(nodes, getPredictionContext());
+	}
+	
+	/**
+	 * Decodes the nodes without reading or writing any mutable field of this component (e.g., flag, feature template state),
+	 * so one component can be shared by multiple threads as long as each thread passes its own context.
+	 * @return the final state of the decoding.
+	 */
+	public S decode(N[] nodes, PredictionContext context)
+	{
+		return decode(createState(nodes), context);
+	}
+	
+	/** Decodes the rest of the state; greedy by default (see {@link #processAux(NLPState, PredictionContext)}). */
+	protected S decode(S state, PredictionContext context)
+	{
+		return processAux(state, context);
 	}
+	
 	public S processAux(S state)
 	{
-		feature_template.setState(state);
-		
+		return processAux(state, getPredictionContext());
+	}
+	
+	/** Greedily decodes the rest of the state using the scratch space in the context. */
+	public S processAux(S state, PredictionContext context)
+	{
 		while (!state.isTerminate())
 		{
 			StringVector vector = extractFeatures(state);
-			StringPrediction label = getPrediction(state, vector);
+			StringPrediction label = getModelPrediction(state, vector, context);
 			state.next(label);
 		}
 		return state;
 	}
 	
+	/**
+	 * Decodes the nodes in the same way as {@link #decode(Object[], PredictionContext)} after saving the oracle,
+	 * but uses the context instead of any mutable field of this component so that it can run on multiple threads.
+	 * @return the final state, which can be passed to {@link NLPState#evaluate(Eval)}.
+	 */
+	public S decodeForEvaluation(N[] nodes, PredictionContext context)
+	{
+		S state = createState(nodes);
+		state.saveOracle();
+		return decode(state, context);
+	}
+	
 	public void processTrain(N[] nodes)
 	{
 		S state = createState(nodes);
-		feature_template.setState(state);
 		if (!isDecode()) state.saveOracle();
 		
 		while (!state.isTerminate())
@@ -236,27 +230,21 @@ public abstract class NLPComponent<N,S extends NLPState<N>> implements Serializa
 	/** @return the oracle prediction for training; otherwise, the model predict. */
 	protected StringPrediction getPrediction(S state, StringVector vector)
 	{
-		return isTrain() ? new StringPrediction(state.getOraclePrediction(), 1) : getModelPrediction(state, vector);
+		return isTrain() ? new StringPrediction(state.getOraclePrediction(), 1) : getModelPrediction(state, vector, getPredictionContext());
 	}
 	
-	protected Pair<Prediction,Prediction> getPredictionBranching(S state, StringVector vector)
-	{
-		return getModelPredictionBranching(state, vector);
-		
-	}
 	/** @return the vector consisting of all features extracted from the state. */
 	protected StringVector extractFeatures(S state)
 	{
-		return feature_template.extractFeatures();
-	}
-
-	protected Pair<Prediction,Prediction> getModelPredictionBranching(S state, StringVector vector) {
-		// TODO Auto-generated method stub
-		return null;
+		return feature_template.extractFeatures(state, !isFeatureHashed());
 	}
-
-	protected StringPrediction getLabelFromPrediciton(Prediction prediction) {
-		// TODO Auto-generated method stub
-		return null;
+	
+	/** @return true if any model hashes features, in which case the values of conjunction features are joined only if needed. */
+	private boolean isFeatureHashed()
+	{
+		for (StringModel model : models)
+			if (model.isFeatureHashed()) return true;
+		
+		return false;
 	}
 }
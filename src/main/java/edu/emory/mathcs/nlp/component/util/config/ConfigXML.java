@@ -50,6 +50,7 @@ public interface ConfigXML
 	String ALGORITHM		= "algorithm";
 	String LABEL_CUTOFF		= "label_cutoff";
 	String FEATURE_CUTOFF	= "feature_cutoff";
+	String FEATURE_HASH_BITS= "feature_hash_bits";
 	String RESET_WEIGHTS	= "reset_weights";
 	String AVERAGE			= "average";
 	
@@ -70,6 +71,7 @@ public interface ConfigXML
 	
 	String PERCEPTRON			= "perceptron";
 	String ADAGRAD				= "adagrad";
+	String LOGISTIC_REGRESSION	= "logistic-regression";
 	String ADAGRAD_MINI_BATCH	= "adagrad-mini-batch";
 	String ADADELTA_MINI_BATCH	= "adadelta-mini-batch";
 	String LIBLINEAR_L2_SVC		= "liblinear-l2-svc";
@@ -35,6 +35,7 @@ import edu.emory.mathcs.nlp.learn.optimization.liblinear.LiblinearL2SVC;
 import edu.emory.mathcs.nlp.learn.optimization.minibatch.AdaDeltaMiniBatch;
 import edu.emory.mathcs.nlp.learn.optimization.minibatch.AdaGradMiniBatch;
 import edu.emory.mathcs.nlp.learn.optimization.sgd.AdaGrad;
+import edu.emory.mathcs.nlp.learn.optimization.sgd.LogisticRegression;
 import edu.emory.mathcs.nlp.learn.optimization.sgd.Perceptron;
 
 /**
@@ -127,6 +128,7 @@ public abstract class NLPConfig<N> implements ConfigXML
 		{
 		case PERCEPTRON         : return getPerceptron       (eOptimizer, model);
 		case ADAGRAD            : return getAdaGrad          (eOptimizer, model);
+		case LOGISTIC_REGRESSION: return getLogisticRegression(eOptimizer, model);
 		case ADAGRAD_MINI_BATCH : return getAdaGradMiniBatch (eOptimizer, model);
 		case ADADELTA_MINI_BATCH: return getAdaDeltaMiniBatch(eOptimizer, model);
 		case LIBLINEAR_L2_SVC   : return getLiblinearL2SVC   (eOptimizer, model);
@@ -135,7 +137,23 @@ public abstract class NLPConfig<N> implements ConfigXML
 		throw new IllegalArgumentException(algorithm+" is not a valid algorithm name.");
 	}
 	
+	/**
+	 * Starts the second pass of the streaming vectorization of the models given the cutoffs in their optimizers.
+	 * @see StringModel#startVectorizing(int, int, boolean)
+	 */
+	public void startVectorizing(StringModel[] models)
+	{
+		for (int i=0; i<models.length; i++)
+			initOptimizer(XMLUtils.getElementByTagName(xml, OPTIMIZER, i), models[i], true);
+	}
+	
 	private void initOptimizer(Element eOptimizer, StringModel model)
+	{
+		initOptimizer(eOptimizer, model, false);
+	}
+	
+	/** @param streaming if true, starts the second pass of the streaming vectorization; otherwise, vectorizes the kept instances. */
+	private void initOptimizer(Element eOptimizer, StringModel model, boolean streaming)
 	{
 		int labelCutoff   = XMLUtils.getIntegerTextContentFromFirstElementByTagName(eOptimizer, LABEL_CUTOFF);
 		int featureCutoff = XMLUtils.getIntegerTextContentFromFirstElementByTagName(eOptimizer, FEATURE_CUTOFF);
@@ -143,7 +161,17 @@ public abstract class NLPConfig<N> implements ConfigXML
 		boolean reset     = XMLUtils.getBooleanTextContentFromFirstElementByTagName(eOptimizer, RESET_WEIGHTS);
 		
 		model.setBias(bias);
-		model.vectorize(labelCutoff, featureCutoff, reset);
+		model.setFeatureHashBits(getFeatureHashBits(eOptimizer));
+		
+		if (streaming)	model.startVectorizing(labelCutoff, featureCutoff, reset);
+		else			model.vectorize(labelCutoff, featureCutoff, reset);
+	}
+	
+	/** @return the number of bits for feature hashing specified in the optimizer if exists; otherwise, 0 (no hashing). */
+	private int getFeatureHashBits(Element eOptimizer)
+	{
+		String bits = XMLUtils.getTextContentFromFirstElementByTagName(eOptimizer, FEATURE_HASH_BITS);
+		return (bits == null || bits.isEmpty()) ? 0 : Integer.parseInt(bits);
 	}
 	
 	private Perceptron getPerceptron(Element eOptimizer, StringModel model)
@@ -151,7 +179,9 @@ public abstract class NLPConfig<N> implements ConfigXML
 		boolean average      = XMLUtils.getBooleanTextContentFromFirstElementByTagName(eOptimizer, AVERAGE);
 		double  learningRate = XMLUtils.getDoubleTextContentFromFirstElementByTagName (eOptimizer, LEARNING_RATE);
 		
-		return new Perceptron(model.getWeightVector(), average, learningRate);
+		Perceptron optimizer = new Perceptron(model.getWeightVector(), average, learningRate);
+		optimizer.setThreadSize(getThreadSize(eOptimizer));
+		return optimizer;
 	}
 	
 	private AdaGrad getAdaGrad(Element eOptimizer, StringModel model)
@@ -159,7 +189,26 @@ public abstract class NLPConfig<N> implements ConfigXML
 		boolean average      = XMLUtils.getBooleanTextContentFromFirstElementByTagName(eOptimizer, AVERAGE);
 		double  learningRate = XMLUtils.getDoubleTextContentFromFirstElementByTagName (eOptimizer, LEARNING_RATE);
 		
-		return new AdaGrad(model.getWeightVector(), average, learningRate);
+		AdaGrad optimizer = new AdaGrad(model.getWeightVector(), average, learningRate);
+		optimizer.setThreadSize(getThreadSize(eOptimizer));
+		return optimizer;
+	}
+	
+	private LogisticRegression getLogisticRegression(Element eOptimizer, StringModel model)
+	{
+		boolean average      = XMLUtils.getBooleanTextContentFromFirstElementByTagName(eOptimizer, AVERAGE);
+		double  learningRate = XMLUtils.getDoubleTextContentFromFirstElementByTagName (eOptimizer, LEARNING_RATE);
+		
+		LogisticRegression optimizer = new LogisticRegression(model.getWeightVector(), average, learningRate);
+		optimizer.setThreadSize(getThreadSize(eOptimizer));
+		return optimizer;
+	}
+	
+	/** @return the number of threads specified in the optimizer if exists; otherwise, 1. */
+	private int getThreadSize(Element eOptimizer)
+	{
+		String threadSize = XMLUtils.getTextContentFromFirstElementByTagName(eOptimizer, THREAD_SIZE);
+		return (threadSize == null || threadSize.isEmpty()) ? 1 : Integer.parseInt(threadSize);
 	}
 	
 	private AdaGradMiniBatch getAdaGradMiniBatch(Element eOptimizer, StringModel model)
@@ -168,7 +217,9 @@ public abstract class NLPConfig<N> implements ConfigXML
 		boolean average      = XMLUtils.getBooleanTextContentFromFirstElementByTagName(eOptimizer, AVERAGE);
 		double  learningRate = XMLUtils.getDoubleTextContentFromFirstElementByTagName (eOptimizer, LEARNING_RATE);
 		
-		return new AdaGradMiniBatch(model.getWeightVector(), batchRatio, average, learningRate);
+		AdaGradMiniBatch optimizer = new AdaGradMiniBatch(model.getWeightVector(), batchRatio, average, learningRate);
+		optimizer.setThreadSize(getThreadSize(eOptimizer));
+		return optimizer;
 	}
 	
 	private AdaDeltaMiniBatch getAdaDeltaMiniBatch(Element eOptimizer, StringModel model)
@@ -178,7 +229,9 @@ public abstract class NLPConfig<N> implements ConfigXML
 		double  learningRate = XMLUtils.getDoubleTextContentFromFirstElementByTagName (eOptimizer, LEARNING_RATE);
 		double  decayingRate = XMLUtils.getDoubleTextContentFromFirstElementByTagName (eOptimizer, DECAYING_RATE);
 
-		return new AdaDeltaMiniBatch(model.getWeightVector(), batchRatio, average, learningRate, decayingRate);
+		AdaDeltaMiniBatch optimizer = new AdaDeltaMiniBatch(model.getWeightVector(), batchRatio, average, learningRate, decayingRate);
+		optimizer.setThreadSize(getThreadSize(eOptimizer));
+		return optimizer;
 	}
 	
 	private LiblinearL2SVC getLiblinearL2SVC(Element eOptimizer, StringModel model)
@@ -36,6 +36,13 @@ public class AccuracyEval implements Eval
 		this.total   += total;
 	}
 	
+	@Override
+	public void add(Eval eval)
+	{
+		AccuracyEval e = (AccuracyEval)eval;
+		add(e.correct, e.total);
+	}
+	
 	public void clear()
 	{
 		correct = total = 0;
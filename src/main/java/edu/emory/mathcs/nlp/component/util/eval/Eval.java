@@ -23,4 +23,6 @@ public interface Eval
 	void   clear();
 	double score();
 	String scores();
+	/** Adds the counts of the specific evaluator, which must be of the same type, to this evaluator. */
+	void   add(Eval eval);
 }
@@ -28,6 +28,8 @@ public class FeatureItem<T> implements Serializable
 	public int       window;
 	public Field     field;
 	public T         value;
+	/** A slot assigned by the feature template for bookkeeping such as memoization; -1 if not assigned. */
+	public transient int slot = -1;
 	
 	public FeatureItem(int window, Field field)
 	{
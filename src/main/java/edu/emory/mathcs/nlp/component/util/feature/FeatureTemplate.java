@@ -21,8 +21,8 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.StringJoiner;
 
+import edu.emory.mathcs.nlp.learn.vector.StringItem;
 import edu.emory.mathcs.nlp.learn.vector.StringVector;
 
 /**
@@ -88,49 +88,93 @@ public abstract class FeatureTemplate<N,S> implements Serializable
 	
 //	============================== EXTRACTOR ==============================
 	
+	/** Calls {@link #extractFeatures(Object)} with the state set by {@link #setState(Object)}. */
 	public StringVector extractFeatures()
 	{
-		StringVector x = new StringVector();
+		return extractFeatures(state);
+	}
+	
+	/** Calls {@link #extractFeatures(Object, boolean)} without joining the values of conjunction features. */
+	public StringVector extractFeatures(S state)
+	{
+		return extractFeatures(state, false);
+	}
+	
+	/**
+	 * Extracts features from the specific state without touching any field of this template,
+	 * so one template can be shared by multiple decoding threads.
+	 * @param join if true, the values of conjunction features are joined here, which suits indexed feature maps that look up every joined value;
+	 * otherwise, they are kept as parts and joined only if needed (see {@link StringItem#getValueHash()}), which suits hashed feature maps.
+	 */
+	public StringVector extractFeatures(S state, boolean join)
+	{
+		StringVector x = new StringVector(size());
+		FeatureItem<?>[] items;
 		int i, type = 0;
 		String[] t;
 		String f;
 		
 		for (i=0; i<feature_list.size(); i++,type++)
 		{
-			f = getFeature(feature_list.get(i));
-			if (f != null) x.add(type, f);
+			items = feature_list.get(i);
+			
+			if (items.length == 1)
+			{
+				f = getFeature(state, items[0]);
+				if (f != null) x.add(type, f);
+			}
+			else if (join)
+			{
+				f = joinFeatures(state, items);
+				if (f != null) x.add(type, f);
+			}
+			else
+			{
+				t = getFeatures(state, items);
+				if (t != null) x.add(type, t);
+			}
 		}
 		
 		for (i=0; i<feature_set.size(); i++,type++)
 		{
-			t = getFeatures(feature_set.get(i));
+			t = getFeatures(state, feature_set.get(i));
 			if (t != null) for (String s : t) x.add(type, s);
 		}
 		
 		return x;
 	}
 	
-	private String getFeature(FeatureItem<?>... items)
+	/** @return the values of the conjunction feature if all of them exist; otherwise, null. */
+	private String[] getFeatures(S state, FeatureItem<?>[] items)
 	{
+		String[] t = new String[items.length];
+		
+		for (int i=0; i<items.length; i++)
+		{
+			t[i] = getFeature(state, items[i]);
+			if (t[i] == null) return null;
+		}
+		
+		return t;
+	}
+	
+	/** @return the values of the conjunction feature joined by {@link StringItem#DELIM} if all of them exist; otherwise, null. */
+	private String joinFeatures(S state, FeatureItem<?>[] items)
+	{
+		StringBuilder build = new StringBuilder();
 		String f;
 		
-		if (items.length == 1)
-			return getFeature(items[0]);
-		else
+		for (int i=0; i<items.length; i++)
 		{
-			StringJoiner join = new StringJoiner("_");
-			
-			for (FeatureItem<?> item : items)
-			{
-				f = getFeature(item);
-				if (f == null) return null;
-				join.add(f);
-			}
-			
-			return join.toString();
+			f = getFeature(state, items[i]);
+			if (f == null) return null;
+			if (i > 0) build.append(StringItem.DELIM);
+			build.append(f);
 		}
+		
+		return build.toString();
 	}
 	
-	protected abstract String   getFeature (FeatureItem<?> item);
-	protected abstract String[] getFeatures(FeatureItem<?> item);
+	protected abstract String   getFeature (S state, FeatureItem<?> item);
+	protected abstract String[] getFeatures(S state, FeatureItem<?> item);
 }
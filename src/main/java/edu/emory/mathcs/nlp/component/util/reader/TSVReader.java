@@ -18,8 +18,11 @@ package edu.emory.mathcs.nlp.component.util.reader;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import edu.emory.mathcs.nlp.common.constant.StringConst;
 import edu.emory.mathcs.nlp.common.util.IOUtils;
@@ -81,4 +84,40 @@ public class TSVReader<N>
 		
 		return list.isEmpty() ? null : index.toNodeList(list);
 	}
+	
+	/**
+	 * @return an iterator over the remaining sentences in the currently opened stream, which reads one sentence ahead.
+	 * @throws UncheckedIOException if reading a sentence fails, from either this method or {@link Iterator#next()}.
+	 */
+	public Iterator<N[]> iterator()
+	{
+		return new Iterator<N[]>()
+		{
+			private N[] nodes = read();
+			
+			@Override
+			public boolean hasNext()
+			{
+				return nodes != null;
+			}
+			
+			@Override
+			public N[] next()
+			{
+				if (!hasNext()) throw new NoSuchElementException();
+				N[] curr = nodes;
+				nodes = read();
+				return curr;
+			}
+			
+			private N[] read()
+			{
+				try
+				{
+					return TSVReader.this.next();
+				}
+				catch (IOException e) {throw new UncheckedIOException(e);}
+			}
+		};
+	}
 }
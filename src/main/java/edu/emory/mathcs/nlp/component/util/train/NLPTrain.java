@@ -15,9 +15,16 @@
  */
 package edu.emory.mathcs.nlp.component.util.train;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 import org.kohsuke.args4j.Option;
@@ -26,6 +33,7 @@ import edu.emory.mathcs.nlp.common.util.BinUtils;
 import edu.emory.mathcs.nlp.common.util.FileUtils;
 import edu.emory.mathcs.nlp.common.util.IOUtils;
 import edu.emory.mathcs.nlp.component.ner.NERNode;
+import edu.emory.mathcs.nlp.component.util.BatchDecoder;
 import edu.emory.mathcs.nlp.component.util.NLPComponent;
 import edu.emory.mathcs.nlp.component.util.NLPFlag;
 import edu.emory.mathcs.nlp.component.util.config.NLPConfig;
@@ -34,8 +42,11 @@ import edu.emory.mathcs.nlp.component.util.feature.FeatureTemplate;
 import edu.emory.mathcs.nlp.component.util.reader.TSVReader;
 import edu.emory.mathcs.nlp.component.util.state.NLPState;
 import edu.emory.mathcs.nlp.learn.model.StringModel;
+import edu.emory.mathcs.nlp.learn.optimization.OnlineOptimizer;
 import edu.emory.mathcs.nlp.learn.optimization.Optimizer;
 import edu.emory.mathcs.nlp.learn.optimization.OptimizerType;
+import edu.emory.mathcs.nlp.learn.util.PredictionContext;
+import edu.emory.mathcs.nlp.learn.weight.WeightVector;
 
 /**
  * Provide instances and methods for training NLP components.
@@ -57,6 +68,14 @@ public abstract class NLPTrain<N,S extends NLPState<N>>
 	public int feature_template = 0;
 	@Option(name="-m", usage="model file (optional)", required=false, metaVar="<filename>")
 	public String model_file = null;
+	@Option(name="-th", usage="number of threads for training and decoding development files (default: # of processors)", required=false, metaVar="<integer>")
+	public int thread_size = Runtime.getRuntime().availableProcessors();
+	@Option(name="-stream", usage="vectorize training instances in two passes without keeping string instances (default: false)", required=false)
+	public boolean streaming = false;
+	@Option(name="-store", usage="directory for memory-mapped training instances kept off the heap (optional)", required=false, metaVar="<filepath>")
+	public String instance_dir = null;
+	/** The pool shared by the optimizers over the aggregation iterations of {@link #train(TSVReader, List, List, NLPConfig, NLPComponent)}. */
+	private ForkJoinPool pool;
 	
 	public NLPTrain() {};
 	
@@ -97,32 +116,46 @@ public abstract class NLPTrain<N,S extends NLPState<N>>
 		Aggregation dagger = configuration.getAggregation();
 		StringModel[] models = component.getModels();
 		int i, size = models.length, bestIter = 0;
+		
+		if (instance_dir != null)
+			for (StringModel model : models) model.setInstanceDirectory(new File(instance_dir));
+
 		float[][] bestWeight = new float[size][];
 		double prevScore, currScore = -1, bestScore = -1;
 		
-		for (int iter=0; ; iter++)
+		pool = new ForkJoinPool(thread_size);
+		
+		try
 		{
-			BinUtils.LOG.info(String.format("\nTraining: %d\n\n", iter));
-			component.setFlag(iter == 0 ? NLPFlag.TRAIN : NLPFlag.AGGREGATE);
-			iterate(reader, trainFiles, component::process);
+			for (int iter=0; ; iter++)
+			{
+				BinUtils.LOG.info(String.format("\nTraining: %d\n\n", iter));
+				component.setFlag(iter == 0 ? NLPFlag.TRAIN : NLPFlag.AGGREGATE);
+				addInstances(reader, trainFiles, component, configuration);
 			
-			component.setFlag(NLPFlag.EVALUATE);
-			prevScore = currScore;
-			currScore = train(reader, developFiles, component, configuration);
-			if (dagger == null) break;	// no aggregating
+				component.setFlag(NLPFlag.EVALUATE);
+				prevScore = currScore;
+				currScore = train(reader, developFiles, component, configuration);
+				if (dagger == null) break;	// no aggregating
 			
-			if (prevScore >= currScore + dagger.getToleranceDelta() || iter - dagger.getMaxTolerance() > bestIter)
-			{
-				for (i=0; i<size; i++) models[i].getWeightVector().fromArray(bestWeight[i]);
-				break;
-			}
-			else if (bestScore < currScore)
-			{
-				for (i=0; i<size; i++) bestWeight[i] = models[i].getWeightVector().toArray().clone();
-				bestScore = currScore;
-				bestIter  = iter;
+				if (prevScore >= currScore + dagger.getToleranceDelta() || iter - dagger.getMaxTolerance() > bestIter)
+				{
+					for (i=0; i<size; i++) models[i].getWeightVector().fromArray(bestWeight[i]);
+					break;
+				}
+				else if (bestScore < currScore)
+				{
+					for (i=0; i<size; i++) bestWeight[i] = models[i].getWeightVector().toArray().clone();
+					bestScore = currScore;
+					bestIter  = iter;
+				}
 			}
 		}
+		finally
+		{
+			pool.shutdown();
+			pool = null;
+		}
 		
 		BinUtils.LOG.info(String.format("\nFinal score: %5.2f\n", bestScore));
 	}
@@ -133,6 +166,9 @@ public abstract class NLPTrain<N,S extends NLPState<N>>
 		Optimizer[] optimizers = configuration.getOptimizers(models);
 		double score = 0;
 		
+		if (pool != null)
+			for (Optimizer optimizer : optimizers) optimizer.setPool(pool);
+		
 		for (int i=0; i<optimizers.length; i++)
 		{
 			BinUtils.LOG.info(optimizers[i].toString()+", bias = "+models[i].getBias()+"\n");
@@ -147,15 +183,21 @@ public abstract class NLPTrain<N,S extends NLPState<N>>
 		return score;
 	}
 	
-	/** Called by {@link #train(TSVReader, List, NLPComponent, NLPConfig)}. */
+	/**
+	 * Called by {@link #train(TSVReader, List, NLPComponent, NLPConfig)}.
+	 * If averaged, the development files are evaluated on a snapshot of the averaged weights after every epoch
+	 * while the live weights keep being trained; the best weights are kept by swapping the snapshot and best buffers.
+	 */
 	protected double trainOnline(TSVReader<N> reader, List<String> developFiles, NLPComponent<N,?> component, Optimizer optimizer, StringModel model)
 	{
+		OnlineOptimizer online = (OnlineOptimizer)optimizer;
+		WeightVector weights = model.getWeightVector();
 		Eval eval = component.getEval();
-		double prevScore = 0, currScore, bestScore = 0;
-		//float[] prevWeight = model.getWeightVector().toArray();
-
+		double prevScore = 0, currScore, bestScore = -1;
 		
-	    float[] bestWeight = null;
+		float[] liveWeight = weights.toArray();
+		float[] currWeight = online.isAveraged() ? new float[liveWeight.length] : liveWeight;
+		float[] bestWeight = new float[liveWeight.length], tmp;
 
 	    int maxEpoch = 50;
 	    int patience = 10;
@@ -165,15 +207,31 @@ public abstract class NLPTrain<N,S extends NLPState<N>>
         for (int epoch=1; epoch < maxEpoch && epoch < patience;epoch++)
 		{
 			eval.clear();
-			optimizer.train(model.getInstanceList());
-			iterate(reader, developFiles, nodes -> component.process(nodes));
+			online.trainEpoch(model.getInstanceList());
+			
+			if (online.isAveraged())
+			{
+				online.getAveragedWeights(currWeight);
+				weights.fromArray(currWeight);
+			}
+			
+			evaluate(reader, developFiles, component);
+			weights.fromArray(liveWeight);
 			currScore = eval.score();
 			
             if(currScore > bestScore){
                 if(currScore > bestScore * improveThreshold && epoch > 1)	//increase iteration if improvement is strong enough
                     patience = patience * patienceIncrease > maxEpoch ? maxEpoch : (int)(patience * patienceIncrease);
                 bestScore = currScore;
-                bestWeight = model.getWeightVector().toArray().clone();
+                
+                if (online.isAveraged())
+                {
+                	tmp = bestWeight;
+                	bestWeight = currWeight;
+                	currWeight = tmp;
+                }
+                else
+                	System.arraycopy(liveWeight, 0, bestWeight, 0, liveWeight.length);
             }
             if(currScore < prevScore){
                 patience--;
@@ -182,7 +240,7 @@ public abstract class NLPTrain<N,S extends NLPState<N>>
             BinUtils.LOG.info(String.format("epoch %3d, patience %3d: %s\n", epoch, patience, currScore));
     	    BinUtils.LOG.info(String.format(eval.scores()));
 		}
-		model.getWeightVector().fromArray(bestWeight);
+		weights.fromArray(bestWeight);
 		return bestScore; 
 	}
 	
@@ -193,13 +251,35 @@ public abstract class NLPTrain<N,S extends NLPState<N>>
 
 		eval.clear();
 		optimizer.train(model.getInstanceList());
-		iterate(reader, developFiles, nodes -> component.process(nodes));
+		evaluate(reader, developFiles, component);
 		BinUtils.LOG.info(String.format("- %s\n", eval.toString()));
 		return eval.score();
 	}
 	
 //	=================================== HELPERS ===================================
 	
+	/**
+	 * Adds the training instances from the files to the models of the component.
+	 * If {@link #streaming}, the files are processed twice: the first pass counts labels and features,
+	 * and the second pass vectorizes the instances as they are generated so that the string instances are never kept.
+	 */
+	protected void addInstances(TSVReader<N> reader, List<String> trainFiles, NLPComponent<N,S> component, NLPConfig<N> configuration)
+	{
+		if (!streaming)
+		{
+			iterate(reader, trainFiles, component::process);
+			return;
+		}
+		
+		StringModel[] models = component.getModels();
+		
+		for (StringModel model : models) model.startCounting();
+		iterate(reader, trainFiles, component::process);
+		configuration.startVectorizing(models);
+		iterate(reader, trainFiles, component::process);
+		for (StringModel model : models) model.stopVectorizing();
+	}
+	
 	protected void iterate(TSVReader<N> reader, List<String> inputFiles, Consumer<N[]> f)
 	{
 		N[] nodes;
@@ -217,6 +297,89 @@ public abstract class NLPTrain<N,S extends NLPState<N>>
 		}
 	}
 	
+	/**
+	 * Decodes the development files using {@link #thread_size} threads and adds the results to the evaluator of the component.
+	 * Each thread evaluates to its own evaluator, and all evaluators are merged at the end.
+	 * Files are read in parallel if there are at least as many files as threads; otherwise, sentences within each file are decoded in parallel.
+	 */
+	protected <T extends NLPState<N>> void evaluate(TSVReader<N> reader, List<String> developFiles, NLPComponent<N,T> component)
+	{
+		List<Eval> evals = new ArrayList<>();
+		ThreadLocal<Eval> localEval = ThreadLocal.withInitial(() ->
+		{
+			Eval e = createEvaluator();
+			synchronized (evals) {evals.add(e);}
+			return e;
+		});
+		
+		if (developFiles.size() >= thread_size)
+		{
+			ExecutorService executor = Executors.newFixedThreadPool(thread_size);
+			List<Future<?>> futures = new ArrayList<>(developFiles.size());
+			
+			for (String developFile : developFiles)
+			{
+				futures.add(executor.submit(() ->
+				{
+					evaluate(new TSVReader<>(reader.getIndex()), developFile, component, new PredictionContext(), localEval.get());
+					return null;
+				}));
+			}
+			
+			try
+			{
+				for (Future<?> future : futures)
+					future.get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+			catch (ExecutionException e) {throw new IllegalStateException(e.getCause());}
+			finally
+			{
+				executor.shutdownNow();
+			}
+		}
+		else
+		{
+			BatchDecoder<N,T> decoder = new BatchDecoder<>(component, thread_size);
+			
+			for (String developFile : developFiles)
+			{
+				reader.open(IOUtils.createFileInputStream(developFile));
+				decoder.process(reader.iterator(), (nodes, context) ->
+				{
+					T state = component.decodeForEvaluation(nodes, context);
+					state.evaluate(localEval.get());
+					return state;
+				}, (nodes, state) -> {});
+				reader.close();
+			}
+		}
+		
+		Eval eval = component.getEval();
+		for (Eval e : evals) eval.add(e);
+	}
+	
+	/** Decodes the development file on the current thread and adds the results to the evaluator. */
+	private <T extends NLPState<N>> void evaluate(TSVReader<N> reader, String developFile, NLPComponent<N,T> component, PredictionContext context, Eval eval) throws IOException
+	{
+		reader.open(IOUtils.createFileInputStream(developFile));
+		N[] nodes;
+		
+		try
+		{
+			while ((nodes = reader.next()) != null)
+				component.decodeForEvaluation(nodes, context).evaluate(eval);
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+	
 	public void save(NLPComponent<N,S> component)
 	{
 		ObjectOutputStream out = IOUtils.createObjectXZBufferedOutputStream(model_file);
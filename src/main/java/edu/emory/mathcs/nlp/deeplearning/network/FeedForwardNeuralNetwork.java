@@ -26,7 +26,6 @@ import edu.emory.mathcs.nlp.deeplearning.activation.ActivationFunction;
 import edu.emory.mathcs.nlp.deeplearning.activation.SigmoidFunction;
 import edu.emory.mathcs.nlp.learn.util.Instance;
 import edu.emory.mathcs.nlp.learn.util.Prediction;
-import edu.emory.mathcs.nlp.learn.vector.IndexValuePair;
 import edu.emory.mathcs.nlp.learn.vector.Vector;
 
 /**
@@ -81,17 +80,17 @@ public class FeedForwardNeuralNetwork implements Serializable
 	private double[] scoresI2H(Vector x, int hiddenSize)
 	{
 		double[] scores = new double[hiddenSize];
-		int l, index;
+		int i, l, index;
 		
 		// column major
-		for (IndexValuePair p : x)
+		for (i=0; i<x.size(); i++)
 		{
-			if (p.getIndex() < input_size)
+			if (x.indexAt(i) < input_size)
 			{
-				index = p.getIndex() * hiddenSize;
+				index = x.indexAt(i) * hiddenSize;
 				
 				for (l=0; l<hiddenSize; l++)
-					scores[l] += i2h[index+l] * p.getValue();	
+					scores[l] += i2h[index+l] * x.valueAt(i);	
 			}
 		}
 		
@@ -163,14 +162,14 @@ public class FeedForwardNeuralNetwork implements Serializable
 	
 	private void trainH2I(Vector x, double[] errors)
 	{
-		int l, index, hiddenSize = errors.length;
+		int i, l, index, hiddenSize = errors.length;
 		
-		for (IndexValuePair p : x)
+		for (i=0; i<x.size(); i++)
 		{
-			index = p.getIndex() * hiddenSize;
+			index = x.indexAt(i) * hiddenSize;
 			
 			for (l=0; l<hiddenSize; l++)						
-				i2h[index+l] += errors[l] * p.getValue();
+				i2h[index+l] += errors[l] * x.valueAt(i);
 		}
 	}
 	
@@ -20,13 +20,22 @@ import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
 
+import edu.emory.mathcs.nlp.common.util.BinUtils;
 import edu.emory.mathcs.nlp.common.util.DSUtils;
 import edu.emory.mathcs.nlp.common.util.FastUtils;
+import edu.emory.mathcs.nlp.common.util.MathUtils;
+import edu.emory.mathcs.nlp.learn.util.BinaryWriter;
+import edu.emory.mathcs.nlp.learn.util.IndexSet;
+import edu.emory.mathcs.nlp.learn.util.MurmurHash3;
+import edu.emory.mathcs.nlp.learn.vector.StringItem;
 
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
@@ -37,6 +46,10 @@ public class FeatureMap implements Serializable
 	private Int2ObjectMap<Object2IntMap<String>> count_map;
 	private List<Object2IntMap<String>> index_map;
 	private int feature_size;
+	/** If greater than 0, features are hashed into 2^hash_bits buckets instead of being indexed (see {@link #setHashBits(int)}). */
+	private int hash_bits;
+	/** If not null, features are looked up from this table instead of {@link #index_map} (see {@link #readBinary(ByteBuffer)}). */
+	private transient FeatureTable table;
 	
 	public FeatureMap()
 	{
@@ -48,16 +61,47 @@ public class FeatureMap implements Serializable
 	{
 		index_map = new ArrayList<>();
 		feature_size = 1;
+		table = null;
 	}
 	
 	/**
-	 * @param cutoff discards features whose frequencies are less than or equal to this cutoff.
+	 * Hashes (type, {@link String#hashCode()} of the feature) into 2^bits buckets using {@link MurmurHash3#hash64(int, int)}
+	 * instead of keeping the feature indices, if bits is greater than 0.
+	 * Only the 32-bit hash code of each feature is mixed, so features with the same hash code (e.g., "Aa" and "BB") always share a bucket.
+	 * The indices are cleared if the number of bits changes.
+	 */
+	public void setHashBits(int bits)
+	{
+		if (bits < 0 || bits > 30) throw new IllegalArgumentException("The number of hash bits must be in [0, 30]: "+bits);
+		
+		if (hash_bits != bits)
+		{
+			hash_bits = bits;
+			initIndices();
+		}
+	}
+	
+	public boolean isHashed()
+	{
+		return hash_bits > 0;
+	}
+	
+	/**
+	 * @param cutoff discards features whose frequencies are less than or equal to this cutoff; ignored if {@link #isHashed()}.
 	 * @return the total number of features.
 	 */
 	public int expand(int cutoff)
 	{
 		Object2IntMap<String> countMap;
 		int type;
+		loadTable();
+		
+		if (isHashed())
+		{
+			reportCollisions();
+			count_map = new Int2ObjectOpenHashMap<>();
+			return feature_size = (1 << hash_bits) + 1;
+		}
 		
 		for (Entry<Integer,Object2IntMap<String>> e : count_map.entrySet())
 		{
@@ -98,6 +142,24 @@ public class FeatureMap implements Serializable
 		}
 	}
 	
+	/** Logs how many distinct features collected since the last expansion share buckets. */
+	private void reportCollisions()
+	{
+		IndexSet buckets = new IndexSet((1 << hash_bits) + 1);
+		int keys = 0;
+		
+		for (Entry<Integer,Object2IntMap<String>> e : count_map.entrySet())
+		{
+			for (String feature : e.getValue().keySet())
+			{
+				buckets.add(indexOf(e.getKey(), feature));
+				keys++;
+			}
+		}
+		
+		BinUtils.LOG.info(String.format("- hashed features: %d into %d buckets, collision rate = %5.2f%%\n", keys, buckets.size(), MathUtils.accuracy(keys - buckets.size(), keys)));
+	}
+	
 	public void add(int type, String value)
 	{
 		FastUtils.increment(count_map.computeIfAbsent(type, k -> new Object2IntOpenHashMap<String>()), value);
@@ -106,17 +168,75 @@ public class FeatureMap implements Serializable
 	/** @return the index of the specific feature given the specific type if exists; otherwise, {@code -1}. */
 	public int indexOf(int type, String feature)
 	{
+		if (isHashed()) return hashIndexOf(type, feature.hashCode());
+		if (table != null) return table.indexOf(type, feature);
 		return DSUtils.isRange(index_map, type) ? index_map.get(type).getOrDefault(feature, -1) : -1;
 	}
 	
+	/**
+	 * Same as {@link #indexOf(int, String)} but takes the item, whose conjunction value is not built if this map is hashed.
+	 * @see StringItem#getValueHash()
+	 */
+	public int indexOf(StringItem item)
+	{
+		return isHashed() ? hashIndexOf(item.getType(), item.getValueHash()) : indexOf(item.getType(), item.getValue());
+	}
+	
+	/** @return the bucket of the feature whose string has the specific hash code. */
+	private int hashIndexOf(int type, int hash)
+	{
+		return 1 + (int)(MurmurHash3.hash64(type, hash) & ((1 << hash_bits) - 1));
+	}
+	
 	public int size()
 	{
 		return feature_size;
 	}
 	
+//	============================== SERIALIZATION ==============================
+	
+	/** Writes the features as sorted string tables (see {@link FeatureTable}). */
+	public void writeBinary(BinaryWriter out) throws IOException
+	{
+		loadTable();
+		out.writeInt(hash_bits);
+		out.writeInt(feature_size);
+		FeatureTable.write(out, index_map);
+	}
+	
+	/**
+	 * Reads the features written by {@link #writeBinary(BinaryWriter)}, which are looked up from the buffer without being loaded to hash maps.
+	 * They are loaded to hash maps only if this map gets expanded or serialized.
+	 */
+	public void readBinary(ByteBuffer in)
+	{
+		count_map    = new Int2ObjectOpenHashMap<>();
+		index_map    = new ArrayList<>();
+		hash_bits    = in.getInt();
+		feature_size = in.getInt();
+		table        = new FeatureTable(in);
+	}
+	
+	/** Moves the features in {@link #table} to {@link #index_map}. */
+	private void loadTable()
+	{
+		if (table != null)
+		{
+			index_map = table.toIndexMaps();
+			table = null;
+		}
+	}
+	
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		loadTable();
+		out.defaultWriteObject();
+	}
+	
 	@Override
 	public String toString()
 	{
-		return index_map.toString();
+		if (isHashed()) return "hashed: 2^"+hash_bits;
+		return (table != null) ? table.toString() : index_map.toString();
 	}
 }
\ No newline at end of file
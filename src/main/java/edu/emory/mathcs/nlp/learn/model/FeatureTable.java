@@ -0,0 +1,215 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learn.model;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+
+import edu.emory.mathcs.nlp.learn.util.BinaryWriter;
+
+/**
+ * Read-only feature indices stored as sorted UTF-8 string tables per feature type.
+ * The tables are used directly from the (memory-mapped) buffer, so no string or hash map is created when a model is loaded;
+ * a feature is found by binary search comparing its code points to the UTF-8 bytes.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class FeatureTable
+{
+	/** indices[type].get(i): the feature index of the i'th string. */
+	private IntBuffer[]  indices;
+	/** offsets[type].get(i): the position of the i'th string in {@link #strings}; the last offset is the end of the table. */
+	private IntBuffer[]  offsets;
+	private ByteBuffer[] strings;
+	
+	/** Reads the tables written by {@link #write(BinaryWriter, List)} and moves the position of the buffer to the end of the tables. */
+	public FeatureTable(ByteBuffer in)
+	{
+		int type, size, length, typeSize = in.getInt();
+		
+		indices = new IntBuffer [typeSize];
+		offsets = new IntBuffer [typeSize];
+		strings = new ByteBuffer[typeSize];
+		
+		for (type=0; type<typeSize; type++)
+		{
+			size = in.getInt();
+			indices[type] = slice(in, size * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			offsets[type] = slice(in, (size+1) * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			length = offsets[type].get(size);
+			strings[type] = slice(in, length);
+			BinaryWriter.skipPadding(in, length);
+		}
+	}
+	
+	/** @return the next length bytes of the buffer as a new buffer, and moves the position of the buffer after them. */
+	private ByteBuffer slice(ByteBuffer in, int length)
+	{
+		ByteBuffer b = in.slice();
+		b.limit(length);
+		in.position(in.position() + length);
+		return b;
+	}
+	
+	/** Writes the index maps of all feature types as sorted string tables. */
+	static public void write(BinaryWriter out, List<Object2IntMap<String>> indexMap) throws IOException
+	{
+		out.writeInt(indexMap.size());
+		
+		for (Object2IntMap<String> map : indexMap)
+		{
+			List<Entry<byte[],Integer>> entries = new ArrayList<>(map.size());
+			int i, size = map.size(), length = 0;
+			int[] idx = new int[size], off = new int[size+1];
+			
+			for (Entry<String,Integer> e : map.entrySet())
+				entries.add(new SimpleEntry<>(e.getKey().getBytes(StandardCharsets.UTF_8), e.getValue()));
+			
+			entries.sort((e1, e2) -> compare(e1.getKey(), e2.getKey()));
+			
+			for (i=0; i<size; i++)
+			{
+				idx[i]   = entries.get(i).getValue();
+				off[i]   = length;
+				length  += entries.get(i).getKey().length;
+			}
+			
+			off[size] = length;
+			out.writeInt(size);
+			out.writeInts(idx);
+			out.writeInts(off);
+			for (Entry<byte[],Integer> e : entries) out.writeRawBytes(e.getKey());
+			out.writePadding(length);
+		}
+	}
+	
+	/** @return the index of the feature of the type if exists; otherwise, {@code -1}. */
+	public int indexOf(int type, String feature)
+	{
+		if (type < 0 || type >= strings.length) return -1;
+		IntBuffer  off = offsets[type];
+		ByteBuffer str = strings[type];
+		int m, c, l = 0, r = indices[type].capacity() - 1;
+		
+		while (l <= r)
+		{
+			m = (l + r) >>> 1;
+			c = compare(feature, str, off.get(m), off.get(m+1));
+			
+			if      (c > 0) l = m + 1;
+			else if (c < 0) r = m - 1;
+			else return indices[type].get(m);
+		}
+		
+		return -1;
+	}
+	
+	/** @return the number of feature types. */
+	public int typeSize()
+	{
+		return strings.length;
+	}
+	
+	/** @return the index maps of all feature types, which can be modified. */
+	public List<Object2IntMap<String>> toIndexMaps()
+	{
+		List<Object2IntMap<String>> maps = new ArrayList<>(strings.length);
+		Object2IntMap<String> map;
+		byte[] bytes;
+		int i, size;
+		
+		for (int type=0; type<strings.length; type++)
+		{
+			size = indices[type].capacity();
+			map  = new Object2IntOpenHashMap<>(size);
+			
+			for (i=0; i<size; i++)
+			{
+				bytes = new byte[offsets[type].get(i+1) - offsets[type].get(i)];
+				for (int j=0; j<bytes.length; j++) bytes[j] = strings[type].get(offsets[type].get(i) + j);
+				map.put(new String(bytes, StandardCharsets.UTF_8), indices[type].get(i));
+			}
+			
+			maps.add(map);
+		}
+		
+		return maps;
+	}
+	
+	/** Compares the byte arrays as unsigned bytes, which gives the code point order for UTF-8. */
+	static private int compare(byte[] b1, byte[] b2)
+	{
+		int i, c, size = Math.min(b1.length, b2.length);
+		
+		for (i=0; i<size; i++)
+			if ((c = (b1[i] & 0xFF) - (b2[i] & 0xFF)) != 0) return c;
+		
+		return b1.length - b2.length;
+	}
+	
+	/** Compares the code points of the string to the UTF-8 bytes in [begin, end) without decoding them to a string. */
+	static private int compare(String s, ByteBuffer b, int begin, int end)
+	{
+		int i = 0, j = begin, c, d;
+		
+		while (i < s.length() && j < end)
+		{
+			c  = s.codePointAt(i);
+			i += Character.charCount(c);
+			d  = b.get(j) & 0xFF;
+			
+			if (d < 0x80)
+				j++;
+			else if (d < 0xE0)
+			{
+				d = ((d & 0x1F) << 6) | (b.get(j+1) & 0x3F);
+				j += 2;
+			}
+			else if (d < 0xF0)
+			{
+				d = ((d & 0x0F) << 12) | ((b.get(j+1) & 0x3F) << 6) | (b.get(j+2) & 0x3F);
+				j += 3;
+			}
+			else
+			{
+				d = ((d & 0x07) << 18) | ((b.get(j+1) & 0x3F) << 12) | ((b.get(j+2) & 0x3F) << 6) | (b.get(j+3) & 0x3F);
+				j += 4;
+			}
+			
+			if (c != d) return c - d;
+		}
+		
+		return (i < s.length()) ? 1 : (j < end) ? -1 : 0;
+	}
+	
+	@Override
+	public String toString()
+	{
+		int[] sizes = new int[strings.length];
+		for (int type=0; type<sizes.length; type++) sizes[type] = indices[type].capacity();
+		return Arrays.toString(sizes);
+	}
+}
@@ -18,12 +18,15 @@ package edu.emory.mathcs.nlp.learn.model;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
 
 import edu.emory.mathcs.nlp.common.util.FastUtils;
+import edu.emory.mathcs.nlp.learn.util.BinaryWriter;
 
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
@@ -97,6 +100,26 @@ public class LabelMap implements Serializable
 		return list.size();
 	}
 	
+	public void writeBinary(BinaryWriter out) throws IOException
+	{
+		out.writeInt(list.size());
+		for (String label : list) out.writeString(label);
+	}
+	
+	/** Reads the labels written by {@link #writeBinary(BinaryWriter)}. */
+	public void readBinary(ByteBuffer in)
+	{
+		count_map = new Object2IntOpenHashMap<>();
+		initIndices();
+		
+		for (int i=in.getInt(); i>0; i--)
+		{
+			String label = BinaryWriter.readString(in);
+			index_map.put(label, list.size());
+			list.add(label);
+		}
+	}
+	
 	@Override
 	public String toString()
 	{
@@ -15,23 +15,30 @@
  */
 package edu.emory.mathcs.nlp.learn.model;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.List;
 
-import edu.emory.mathcs.nlp.common.collection.tuple.Pair;
 import edu.emory.mathcs.nlp.deeplearning.network.FeedForwardNeuralNetwork;
+import edu.emory.mathcs.nlp.learn.util.BinaryWriter;
 import edu.emory.mathcs.nlp.learn.util.Instance;
+import edu.emory.mathcs.nlp.learn.util.InstanceStore;
 import edu.emory.mathcs.nlp.learn.util.Prediction;
+import edu.emory.mathcs.nlp.learn.util.PredictionContext;
 import edu.emory.mathcs.nlp.learn.util.StringInstance;
 import edu.emory.mathcs.nlp.learn.util.StringPrediction;
-import edu.emory.mathcs.nlp.learn.vector.IndexValuePair;
+import edu.emory.mathcs.nlp.learn.vector.BinarySparseVector;
 import edu.emory.mathcs.nlp.learn.vector.SparseVector;
 import edu.emory.mathcs.nlp.learn.vector.StringItem;
 import edu.emory.mathcs.nlp.learn.vector.StringVector;
+import edu.emory.mathcs.nlp.learn.weight.BinomialWeightVector;
+import edu.emory.mathcs.nlp.learn.weight.MultinomialWeightVector;
 import edu.emory.mathcs.nlp.learn.weight.WeightVector;
 
 /**
@@ -41,12 +48,20 @@ public class StringModel implements Serializable
 {
 	private static final long serialVersionUID = 6610292514588323072L;
 	private Deque<StringInstance> instance_deque;
-	private List<Instance>        instance_list;
+	/** Vectorized training instances, which are not part of the model. */
+	private transient List<Instance> instance_list;
 	private LabelMap              label_map;
 	private FeatureMap            feature_map;
 	private WeightVector          weight_vector;
 	private float                 bias;
 	private FeedForwardNeuralNetwork neuralNet;
+	/** The pass of the streaming vectorization; null if instances are kept until {@link #vectorize(int, int, boolean)}. */
+	private transient Stage stage;
+	/** If not null, vectorized instances are kept off-heap in {@link InstanceStore}s backed by temporary files in this directory. */
+	private transient File instance_dir;
+	
+	/** @see #startCounting() */
+	private enum Stage {COUNT, VECTORIZE, VECTORIZED}
 	
 	public StringModel(WeightVector vector)
 	{
@@ -66,11 +81,30 @@ public class StringModel implements Serializable
 		this.bias = bias;
 	}
 	
+	/**
+	 * Counts the label and the features of the instance and keeps the instance until {@link #vectorize(int, int, boolean)}.
+	 * During the streaming vectorization, the instance is either only counted (first pass) or only vectorized (second pass).
+	 */
 	public void addInstance(StringInstance instance)
 	{
+		if (stage == Stage.VECTORIZE)
+		{
+			addVectorizedInstance(instance);
+			return;
+		}
+		
 		label_map.add(instance.getLabel());
 		instance.getVector().forEach(e -> feature_map.add(e.getType(), e.getValue()));
-		instance_deque.add(instance);
+		if (stage != Stage.COUNT) instance_deque.add(instance);
+	}
+	
+	/** Called by {@link #addInstance(StringInstance)} and {@link #vectorize(int, int, boolean)}. */
+	private void addVectorizedInstance(StringInstance instance)
+	{
+		int labelIndex = label_map.indexOf(instance.getLabel());
+		
+		if (labelIndex >= 0)
+			instance_list.add(new Instance(labelIndex, toBinarySparseVector(instance.getVector())));
 	}
 	
 	public void addInstances(Collection<StringInstance> instances)
@@ -89,49 +123,156 @@ public class StringModel implements Serializable
 		return instance_list;
 	}
 	
-	public void vectorize(int labelCutoff, int featureCutoff, boolean reset)
+	/**
+	 * Keeps the vectorized instances in {@link InstanceStore}s memory-mapped to temporary files in the directory
+	 * instead of on the heap; if null, the instances are kept on the heap.
+	 */
+	public void setInstanceDirectory(File directory)
+	{
+		instance_dir = directory;
+	}
+	
+	/** Releases the previous instances and creates an empty list for the new instances. */
+	private void initInstanceList()
 	{
-		instance_list = new ArrayList<>();
-		StringInstance instance;
-		int labelIndex;
+		if (instance_list instanceof InstanceStore)
+			((InstanceStore)instance_list).close();
 		
-		// filtering
-		if (reset)
+		instance_list = (instance_dir != null) ? new InstanceStore(instance_dir) : new ArrayList<>();
+	}
+	
+	/** Hashes features into 2^bits buckets if bits is greater than 0 (see {@link FeatureMap#setHashBits(int)}). */
+	public void setFeatureHashBits(int bits)
+	{
+		feature_map.setHashBits(bits);
+	}
+	
+	public boolean isFeatureHashed()
+	{
+		return feature_map.isHashed();
+	}
+	
+	/** Vectorizes the kept instances; does nothing if the instances have already been vectorized by {@link #stopVectorizing()}. */
+	public void vectorize(int labelCutoff, int featureCutoff, boolean reset)
+	{
+		if (stage == Stage.VECTORIZED)
 		{
-			label_map  .initIndices();
-			feature_map.initIndices();
+			stage = null;
+			return;
 		}
 		
-		label_map  .expand(labelCutoff);
-		feature_map.expand(featureCutoff);
+		initInstanceList();
+		expandMaps(labelCutoff, featureCutoff, reset);
 		
 		if (reset)	weight_vector.init  (label_map.size(), feature_map.size());
 		else		weight_vector.expand(label_map.size(), feature_map.size());
 		
 		// vectorizing
 		while (!instance_deque.isEmpty())
+			addVectorizedInstance(instance_deque.poll());
+		
+		instance_deque = new ArrayDeque<>();
+	}
+	
+	/** Called by {@link #vectorize(int, int, boolean)} and {@link #startVectorizing(int, int, boolean)}. */
+	private void expandMaps(int labelCutoff, int featureCutoff, boolean reset)
+	{
+		if (reset)
 		{
-			instance   = instance_deque.poll();
-			labelIndex = label_map.indexOf(instance.getLabel());
-			
-			if (labelIndex >= 0)
-				instance_list.add(new Instance(labelIndex, toSparseVector(instance.getVector())));
+			label_map  .initIndices();
+			feature_map.initIndices();
 		}
 		
-		instance_deque = new ArrayDeque<>();
+		label_map  .expand(labelCutoff);
+		feature_map.expand(featureCutoff);
+		checkWeightSize();
+	}
+	
+	/** @throws IllegalStateException if the weight vector for the labels and the features would not fit in an array. */
+	private void checkWeightSize()
+	{
+		long labels = (weight_vector instanceof BinomialWeightVector) ? 1 : label_map.size();
+		
+		if (labels * feature_map.size() > Integer.MAX_VALUE)
+			throw new IllegalStateException(String.format("%d labels x %d features exceed the maximum size of the weight vector%s.", label_map.size(), feature_map.size(), feature_map.isHashed() ? "; use fewer hash bits" : ""));
+	}
+	
+//	============================== STREAMING VECTORIZATION ==============================
+	
+	/**
+	 * Starts the first pass of the streaming vectorization, where {@link #addInstance(StringInstance)} only counts labels and features.
+	 * The same instances must be added again after {@link #startVectorizing(int, int, boolean)} so that they get vectorized
+	 * without the string instances being kept in memory.
+	 */
+	public void startCounting()
+	{
+		stage = Stage.COUNT;
+	}
+	
+	/**
+	 * Starts the second pass, where {@link #addInstance(StringInstance)} vectorizes the instances right away.
+	 * The weight vector is not expanded until {@link #stopVectorizing()}, so predictions made during this pass are the same as the first pass.
+	 * @throws IllegalStateException if the weights are reset while the model has been trained, because predictions made during this pass would use the new feature indices.
+	 */
+	public void startVectorizing(int labelCutoff, int featureCutoff, boolean reset)
+	{
+		if (stage != Stage.COUNT) throw new IllegalStateException("startCounting() must be called before startVectorizing().");
+		if (reset && weight_vector.featureSize() > 0) throw new IllegalStateException("The weights of a trained model cannot be reset during the streaming vectorization.");
+		
+		initInstanceList();
+		expandMaps(labelCutoff, featureCutoff, reset);
+		stage = Stage.VECTORIZE;
+	}
+	
+	/** Ends the second pass and expands the weight vector; the following {@link #vectorize(int, int, boolean)} keeps the vectorized instances. */
+	public void stopVectorizing()
+	{
+		if (stage != Stage.VECTORIZE) throw new IllegalStateException("startVectorizing() must be called before stopVectorizing().");
+		weight_vector.expand(label_map.size(), feature_map.size());
+		stage = Stage.VECTORIZED;
 	}
 	
 	public SparseVector toSparseVector(StringVector vector)
 	{
-		SparseVector x = new SparseVector();
+		SparseVector x = new SparseVector(vector.size()+1);
 		int index;
 		
 		if (bias > 0)	// bias
-			x.add(new IndexValuePair(0, bias));
+			x.add(0, bias);
 		
 		for (StringItem e : vector)
 		{
-			index = feature_map.indexOf(e.getType(), e.getValue());
+			index = feature_map.indexOf(e);
+			if (index > 0) x.add(index, e.getWeight());
+		}
+		
+		x.sort();
+		x.trimToSize();
+		return x;
+	}
+	
+	/** Same as {@link #toSparseVector(StringVector)} but features whose weights are 1 are stored without values. */
+	public BinarySparseVector toBinarySparseVector(StringVector vector)
+	{
+		BinarySparseVector x = toBinarySparseVector(vector, new BinarySparseVector(vector.size()));
+		x.trimToSize();
+		return x;
+	}
+	
+	/** Same as {@link #toBinarySparseVector(StringVector)} but fills the specific vector, which gets cleared first. */
+	public BinarySparseVector toBinarySparseVector(StringVector vector, BinarySparseVector x)
+	{
+		StringItem e;
+		int index;
+		x.clear();
+		
+		if (bias > 0)	// bias
+			x.add(0, bias);
+		
+		for (int i=0; i<vector.size(); i++)
+		{
+			e = vector.get(i);
+			index = feature_map.indexOf(e);
 			if (index > 0) x.add(index, e.getWeight());
 		}
 		
@@ -154,28 +295,97 @@ public class StringModel implements Serializable
 		return label_map.getLabel(index);
 	}
 	
+	public int getLabelSize()
+	{
+		return label_map.size();
+	}
+	
+	/** @return the labels in the order of their indices, which is replaced by a new list whenever the labels get re-indexed. */
+	public List<String> getLabelList()
+	{
+		return label_map.getLabelList();
+	}
+	
 	public StringPrediction predictBest(StringVector x)
 	{
 		if(isUsingNeuralNetwork()) {
-			Prediction p = neuralNet.predictBest(toSparseVector(x));
+			Prediction p = neuralNet.predictBest(toBinarySparseVector(x));
 			return new StringPrediction(label_map.getLabel(p.getLabel()), p.getScore());
 		}
 		
-		Prediction p = weight_vector.predictBest(toSparseVector(x));
+		Prediction p = weight_vector.predictBest(toBinarySparseVector(x));
 		return new StringPrediction(label_map.getLabel(p.getLabel()), p.getScore());
 	}
 	
-	public Pair<Prediction,Prediction> predictBestBranching(StringVector x)
+	/**
+	 * Same as {@link #predictBest(StringVector)} but reuses the buffers in the context instead of allocating.
+	 * @return {@link PredictionContext#getStringPrediction()}, which gets overwritten by the next call.
+	 */
+	public StringPrediction predictBest(StringVector x, PredictionContext context)
 	{
-		return weight_vector.predictTop2(toSparseVector(x));
+		BinarySparseVector v = toBinarySparseVector(x, context.getVector());
+		Prediction p;
+		
+		if (isUsingNeuralNetwork())
+		{
+			p = context.getFirst();
+			p.copy(neuralNet.predictBest(v));
+		}
+		else
+			p = weight_vector.predictBest(v, context);
+		
+		return getLabelFromPrediciton(p, context);
 	}
 	
+	/**
+	 * Scores all labels at once, where the i'th score is for {@link #getLabel(int)}.
+	 * @return {@link PredictionContext#getScores(int)}, which gets overwritten by the next call.
+	 */
+	public float[] scores(StringVector x, PredictionContext context)
+	{
+		float[] scores = context.getScores(getLabelSize());
+		weight_vector.scores(toBinarySparseVector(x, context.getVector()), scores);
+		return scores;
+	}
+	
+	/**
+	 * Same as {@link #scores(StringVector, PredictionContext)} but scores only the specific labels (see {@link WeightVector#scores(edu.emory.mathcs.nlp.learn.vector.Vector, float[], int[])}).
+	 * @return {@link PredictionContext#getScores(int)}, whose entries of the other labels are undefined.
+	 */
+	public float[] scores(StringVector x, int[] labels, PredictionContext context)
+	{
+		float[] scores = context.getScores(getLabelSize());
+		weight_vector.scores(toBinarySparseVector(x, context.getVector()), scores, labels);
+		return scores;
+	}
+
+	/**
+	 * Scores the specific labels of the first size vectors in one batch, reusing the feature vector of the context.
+	 * @param labels labels[i] = the labels to be scored for xs[i].
+	 * @param scores scores[i] gets the scores of xs[i], whose entries of the other labels are undefined; each must be as long as {@link #getLabelSize()}.
+	 */
+	public void scores(StringVector[] xs, int[][] labels, float[][] scores, int size, PredictionContext context)
+	{
+		BinarySparseVector v = context.getVector();
+
+		for (int i=0; i<size; i++)
+			weight_vector.scores(toBinarySparseVector(xs[i], v), scores[i], labels[i]);
+	}
+
 	public StringPrediction getLabelFromPrediciton(Prediction p)
 	{
 		return new StringPrediction(label_map.getLabel(p.getLabel()), p.getScore());
 
 	}
 	
+	/** Same as {@link #getLabelFromPrediciton(Prediction)} but writes to {@link PredictionContext#getStringPrediction()}. */
+	public StringPrediction getLabelFromPrediciton(Prediction p, PredictionContext context)
+	{
+		StringPrediction sp = context.getStringPrediction();
+		sp.set(label_map.getLabel(p.getLabel()), p.getScore());
+		return sp;
+	}
+	
 	public String trainInfo()
 	{
 		StringBuilder build = new StringBuilder();
@@ -187,6 +397,33 @@ public class StringModel implements Serializable
 		return build.toString();
 	}
 
+//	============================== SERIALIZATION ==============================
+	
+	/** @return a copy of this model without the labels, features, and weights, which are written separately by {@link #writeBinary(BinaryWriter)}. */
+	public StringModel createSkeleton()
+	{
+		StringModel model = new StringModel(weight_vector.isBinomial() ? new BinomialWeightVector() : new MultinomialWeightVector());
+		model.bias = bias;
+		model.neuralNet = neuralNet;
+		return model;
+	}
+	
+	/** Writes the labels, features, and weights. */
+	public void writeBinary(BinaryWriter out) throws IOException
+	{
+		label_map    .writeBinary(out);
+		feature_map  .writeBinary(out);
+		weight_vector.writeBinary(out);
+	}
+	
+	/** Reads the labels, features, and weights written by {@link #writeBinary(BinaryWriter)}. */
+	public void readBinary(ByteBuffer in)
+	{
+		label_map    .readBinary(in);
+		feature_map  .readBinary(in);
+		weight_vector.readBinary(in);
+	}
+	
 	public void setNeuralNetwork(FeedForwardNeuralNetwork ffnn) {
 		this.neuralNet = ffnn;
 	}
@@ -15,14 +15,17 @@
  */
 package edu.emory.mathcs.nlp.learn.optimization;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
+import edu.emory.mathcs.nlp.common.util.BinUtils;
 import edu.emory.mathcs.nlp.learn.util.Instance;
-import edu.emory.mathcs.nlp.learn.vector.IndexValuePair;
-import edu.emory.mathcs.nlp.learn.vector.Vector;
+import edu.emory.mathcs.nlp.learn.util.InstanceMatrix;
 import edu.emory.mathcs.nlp.learn.weight.WeightVector;
 
 /**
@@ -38,80 +41,143 @@ abstract public class OneVsAllOptimizer extends Optimizer
 		thread_size = threadSize;
 	}
 	
+	/** Converts the instances to {@link InstanceMatrix} once, which is shared by all labels. */
 	public void train(List<Instance> instances)
-	{	
+	{
+		InstanceMatrix matrix = new InstanceMatrix(instances);
+		
 		if (weight_vector.isBinomial())
-			trainBinomial(instances);
+			trainBinomial(matrix);
 		else
-			trainMultinomial(instances);
+			trainMultinomial(matrix);
 	}
 	
-	private void trainBinomial(List<Instance> instances)
+	private void trainBinomial(InstanceMatrix instances)
 	{
 		update(instances, 1);
 	}
 	
-	private void trainMultinomial(List<Instance> instances)
+	/**
+	 * Trains the labels on the shared pool if set (see {@link #setPool(ForkJoinPool)}) or on a pool of this call, starting from the labels with the most positive instances,
+	 * which take the longest to converge, so that the rare labels fill in the idle threads at the end.
+	 */
+	private void trainMultinomial(InstanceMatrix instances)
 	{
-		ExecutorService executor = Executors.newFixedThreadPool(thread_size);
-		int currLabel, size = weight_vector.labelSize();
+		int i, size = weight_vector.labelSize();
+		List<TrainTask> tasks = new ArrayList<>(size);
+		int[] positives = new int[size];
+		long time = System.currentTimeMillis();
 		
-		for (currLabel=0; currLabel<size; currLabel++)
-			executor.execute(new TrainTask(instances, currLabel));
+		for (i=0; i<instances.size(); i++)
+			positives[instances.getLabel(i)]++;
 		
-		executor.shutdown();
+		for (i=0; i<size; i++)
+			tasks.add(new TrainTask(instances, i, positives[i]));
+		
+		Collections.sort(tasks);
+		ForkJoinPool pool = acquirePool(thread_size);
 		
 		try
 		{
-			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			for (Future<Void> future : pool.invokeAll(tasks))
+				future.get();
 		}
-		catch (InterruptedException e) {e.printStackTrace();}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		catch (ExecutionException e) {throw new IllegalStateException(e.getCause());}
+		finally
+		{
+			releasePool(pool);
+		}
+		
+		TrainTask longest = Collections.max(tasks, (t1, t2) -> Long.compare(t1.time, t2.time));
+		BinUtils.LOG.info(String.format("- total time = %d ms, longest label = %d (%d ms)\n", System.currentTimeMillis() - time, longest.curr_label, longest.time));
 	}
 	
-	class TrainTask implements Runnable
+	class TrainTask implements Callable<Void>, Comparable<TrainTask>
 	{
-		List<Instance> instances;
+		InstanceMatrix instances;
 		int curr_label;
+		int positives;
+		int epochs;
+		long time;
 		
-		/** @param currLabel the current label to train. */
-		public TrainTask(List<Instance> instances, int currLabel)
+		/**
+		 * @param currLabel the current label to train.
+		 * @param positives the number of instances whose labels are the current label, used as the estimated cost.
+		 */
+		public TrainTask(InstanceMatrix instances, int currLabel, int positives)
 		{
 			this.instances = instances;
+			this.positives = positives;
 			curr_label = currLabel;
 		}
 		
-		public void run()
+		@Override
+		public Void call()
 		{
-			update(instances, curr_label);
+			time   = System.currentTimeMillis();
+			epochs = update(instances, curr_label);
+			time   = System.currentTimeMillis() - time;
+			BinUtils.LOG.info(String.format("- label =%3d, positives = %d, epochs = %d, time = %d ms\n", curr_label, positives, epochs, time));
+			return null;
+		}
+		
+		/** Sorts in descending order of the estimated costs. */
+		@Override
+		public int compareTo(TrainTask o)
+		{
+			return Integer.compare(o.positives, positives);
 		}
     }
 	
-	abstract public void update(List<Instance> instances, int currLabel);
+	/**
+	 * Trains the weights of the current label, which are updated in place in the weight vector;
+	 * the weight of the j'th feature is at {@link #getWeightOffset(int)} + j * {@link #getWeightStride()}.
+	 * @return the number of epochs until convergence.
+	 */
+	abstract public int update(InstanceMatrix instances, int currLabel);
 	
-	protected byte[] getBinaryLabels(List<Instance> instances, int currLabel)
+	protected byte[] getBinaryLabels(InstanceMatrix instances, int currLabel)
 	{
 		int i, size = instances.size();
 		byte[] y = new byte[size];
 
 		for (i=0; i<size; i++)
-			y[i] = instances.get(i).isLabel(currLabel) ? (byte)1 : (byte)-1;
+			y[i] = (instances.getLabel(i) == currLabel) ? (byte)1 : (byte)-1;
 
 		return y;
 	}
 	
-	protected double getScore(Vector x, float[] weight)
+	/** @return the index of the weight of the current label for the 0th feature in the weight vector. */
+	protected int getWeightOffset(int currLabel)
+	{
+		return weight_vector.indexOf(currLabel, 0);
+	}
+	
+	/** @return the distance between the weights of the same label for consecutive features in the weight vector. */
+	protected int getWeightStride()
+	{
+		return weight_vector.isBinomial() ? 1 : weight_vector.labelSize();
+	}
+	
+	/** @return the score of the i'th instance given the weights of the current label. */
+	protected double getScore(InstanceMatrix instances, int i, float[] weight, int offset, int stride)
 	{
 		double score = 0;
 		
-		for (IndexValuePair p : x)
-			score += weight[p.getIndex()] * p.getValue();
+		for (int k=instances.begin(i); k<instances.end(i); k++)
+			score += weight[offset + instances.indexAt(k) * stride] * instances.valueAt(k);
 		
 		return score;
 	}
 	
-	protected void updateWeights(Vector x, float[] weight, double gradient)
+	protected void updateWeights(InstanceMatrix instances, int i, float[] weight, int offset, int stride, double gradient)
 	{
-		for (IndexValuePair p : x)
-			weight[p.getIndex()] += gradient * p.getValue();
+		for (int k=instances.begin(i); k<instances.end(i); k++)
+			weight[offset + instances.indexAt(k) * stride] += gradient * instances.valueAt(k);
 	}
-}
\ No newline at end of file
+}
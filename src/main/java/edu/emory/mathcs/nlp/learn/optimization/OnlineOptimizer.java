@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Random;
 
 import edu.emory.mathcs.nlp.learn.util.Instance;
+import edu.emory.mathcs.nlp.learn.util.InstanceStore;
 import edu.emory.mathcs.nlp.learn.weight.WeightVector;
 
 /**
@@ -31,6 +32,7 @@ public abstract class OnlineOptimizer extends Optimizer
 	protected final double learning_rate;
 	protected Random random;
 	protected int steps;
+	protected int thread_size;
 	
 	/**
 	 * @param weightVector the weight vector to be trained (may contain previously learned weights). 
@@ -43,6 +45,7 @@ public abstract class OnlineOptimizer extends Optimizer
 		average_vector = average ? weightVector.createEmptyVector() : null;
 		learning_rate  = learningRate;
 		random         = new Random(5);
+		thread_size    = 1;
 	}
 	
 	@Override
@@ -52,10 +55,24 @@ public abstract class OnlineOptimizer extends Optimizer
 		train(instances, 1);
 	}
 	
-	/** Shuffles the trainign instances. */
+	/** Shuffles the trainign instances; instances in {@link InstanceStore} are shuffled by their row IDs. */
 	public void shuffle(List<Instance> instances)
 	{
-		Collections.shuffle(instances, random);
+		if (instances instanceof InstanceStore)
+			((InstanceStore)instances).shuffle(random);
+		else
+			Collections.shuffle(instances, random);
+	}
+	
+	public int getThreadSize()
+	{
+		return thread_size;
+	}
+	
+	/** Sets the number of threads updating the weight vector in parallel if supported by the optimizer. */
+	public void setThreadSize(int threadSize)
+	{
+		thread_size = Math.max(1, threadSize);
 	}
 	
 	/** @return true if averaged SGD is used. */
@@ -69,7 +86,33 @@ public abstract class OnlineOptimizer extends Optimizer
 	 * If averaged SGD is used, the weights are averaged after all epochs.
 	 * The instances will be shuffled for every epoch.
 	 */
- 	public abstract void train(List<Instance> instances, int epochs);
+ 	public void train(List<Instance> instances, int epochs)
+ 	{
+ 		for (; epochs>0; epochs--)
+ 			trainEpoch(instances);
+ 		
+ 		if (isAveraged())
+ 		{
+ 			getAveragedWeights(weight_vector.toArray());
+ 			resetAverage();
+ 		}
+ 	}
+ 	
+ 	/**
+ 	 * Shuffles the instances and trains the weight vector for one epoch.
+ 	 * Unlike {@link #train(List, int)}, the weight vector is not averaged; the averages keep accumulating across epochs.
+ 	 */
+ 	public abstract void trainEpoch(List<Instance> instances);
+ 	
+ 	/**
+ 	 * Copies the averaged weights to the array without changing the weight vector (snapshot).
+ 	 * Copies the weight vector instead if averaged SGD is not used or nothing has been trained.
+ 	 * @param weights the array of the same size as the weight vector; can be the weight vector itself.
+ 	 */
+ 	public abstract void getAveragedWeights(float[] weights);
+ 	
+ 	/** Clears the averages so that the next average starts from the current weights. */
+ 	protected abstract void resetAverage();
  	
 //	============================== UPDATE ==============================
 
@@ -16,6 +16,7 @@
 package edu.emory.mathcs.nlp.learn.optimization;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import edu.emory.mathcs.nlp.common.util.DSUtils;
 import edu.emory.mathcs.nlp.learn.util.Instance;
@@ -28,6 +29,8 @@ public abstract class Optimizer
 {
 	protected WeightVector weight_vector;
 	private OptimizerType type;
+	/** The pool shared across optimizers if set by {@link #setPool(ForkJoinPool)}; the caller owns it and shuts it down. */
+	private ForkJoinPool pool;
 	
 	public Optimizer(WeightVector weightVector, OptimizerType type)
 	{
@@ -41,6 +44,27 @@ public abstract class Optimizer
 	}
 	
 	public abstract void train(List<Instance> instances);
+	
+	/**
+	 * Lets this optimizer train in parallel on the pool, which can be shared by optimizers over many training calls (e.g., aggregation iterations).
+	 * The pool is not shut down by this optimizer.
+	 */
+	public void setPool(ForkJoinPool pool)
+	{
+		this.pool = pool;
+	}
+	
+	/** @return the shared pool if set; otherwise, a new pool of the specific number of threads, which must be passed to {@link #releasePool(ForkJoinPool)}. */
+	protected ForkJoinPool acquirePool(int threadSize)
+	{
+		return (pool != null) ? pool : new ForkJoinPool(threadSize);
+	}
+	
+	/** Shuts down the pool from {@link #acquirePool(int)} unless it is the shared pool. */
+	protected void releasePool(ForkJoinPool pool)
+	{
+		if (pool != this.pool) pool.shutdown();
+	}
 
 	protected int binomialBestHingeLoss(Instance instance)
 	{
@@ -15,16 +15,12 @@
  */
 package edu.emory.mathcs.nlp.learn.optimization.liblinear;
 
-import java.util.List;
 import java.util.Random;
 import java.util.StringJoiner;
 
-import edu.emory.mathcs.nlp.common.util.BinUtils;
 import edu.emory.mathcs.nlp.common.util.DSUtils;
-import edu.emory.mathcs.nlp.common.util.MathUtils;
 import edu.emory.mathcs.nlp.learn.optimization.OneVsAllOptimizer;
-import edu.emory.mathcs.nlp.learn.util.Instance;
-import edu.emory.mathcs.nlp.learn.vector.IndexValuePair;
+import edu.emory.mathcs.nlp.learn.util.InstanceMatrix;
 import edu.emory.mathcs.nlp.learn.weight.WeightVector;
 
 /**
@@ -46,7 +42,7 @@ public class LiblinearL2SVC extends OneVsAllOptimizer
 	}
 	
 	@Override
-	public void update(List<Instance> instances, int label)
+	public int update(InstanceMatrix instances, int label)
 	{
 		final float diagonal = (loss_type.equals("L1")) ? 0f   : (float)(0.5/cost);
 		final double upper   = (loss_type.equals("L1")) ? cost : Double.POSITIVE_INFINITY;
@@ -54,14 +50,16 @@ public class LiblinearL2SVC extends OneVsAllOptimizer
 		final Random rand = new Random(5);
 		final int N = instances.size();
 		
-		float[] weight = weight_vector.getWeights(label);
+		final int offset = getWeightOffset(label);
+		final int stride = getWeightStride();
+		
+		float[] weight = weight_vector.toArray();
 		float[] alpha  = new float[N];
 		float[] QD     = new float[N];
 		int  [] index  = DSUtils.range(N);
 		
 		int active_size = N, epochs = 0, i, s;
 		double G, d, alpha_old;
-		Instance instance;
 		
 		// PG: projected gradient, for shrinking and stopping
 		double PGmax_old = Double.POSITIVE_INFINITY;
@@ -70,12 +68,7 @@ public class LiblinearL2SVC extends OneVsAllOptimizer
 		double PG;
 		
 		for (i=0; i<N; i++)
-		{
-			QD[i] = diagonal;
-			
-			for (IndexValuePair p : instances.get(i).getVector())
-				QD[i] += MathUtils.sq(p.getValue());
-		}
+			QD[i] = diagonal + instances.getSquaredNorm(i);
 		
 		while (epochs < MAX_EPOCHS)
 		{
@@ -86,10 +79,9 @@ public class LiblinearL2SVC extends OneVsAllOptimizer
 			for (s=0; s<active_size; s++)
 			{
 				i = index[s];
-				instance = instances.get(i);
 				
 				// hinge loss				
-				G = getScore(instance.getVector(), weight) * y[i] - 1;
+				G = getScore(instances, i, weight, offset, stride) * y[i] - 1;
 				G += alpha[i] * diagonal;
 				PG = 0;
 				
@@ -135,11 +127,7 @@ public class LiblinearL2SVC extends OneVsAllOptimizer
 					alpha[i] = (float)Math.min(Math.max(alpha[i] - G / QD[i], 0.0), upper);
 					d = (alpha[i] - alpha_old) * y[i];
 					
-					if (d != 0)
-					{
-						for (IndexValuePair xi : instance.getVector())
-							weight[xi.getIndex()] += d * xi.getValue();
-					}
+					if (d != 0) updateWeights(instances, i, weight, offset, stride, d);
 				}
 			}
 			
@@ -164,8 +152,7 @@ public class LiblinearL2SVC extends OneVsAllOptimizer
 			if (PGmin_old >= 0) PGmin_old = Double.NEGATIVE_INFINITY;
 		}
 		
-		weight_vector.setWeights(label, weight);
-		BinUtils.LOG.info(String.format("- label =%3d, epochs = %d\n", label, epochs));
+		return epochs;
     }
 	
 	@Override
@@ -27,12 +27,15 @@ public class AdaDeltaMiniBatch extends AdaptiveMiniBatch
 {
 	protected final double decaying_rate;
 	protected final double growth_rate;
+	/** The batch in which the diagonal of each coordinate was last updated. */
+	protected int[] last_batches;
 
 	public AdaDeltaMiniBatch(WeightVector weightVector, double batchRatio, boolean average, double learningRate, double decayingRate)
 	{
 		super(weightVector, batchRatio, average, learningRate);
 		decaying_rate = decayingRate;
 		growth_rate   = 1 - decayingRate;
+		last_batches  = new int[diagonals.toArray().length];
 	}
 	
 	@Override
@@ -41,6 +44,20 @@ public class AdaDeltaMiniBatch extends AdaptiveMiniBatch
 		return (float)(decaying_rate*previousDiagonal + growth_rate*MathUtils.sq(gradient));
 	}
 	
+	/**
+	 * Applies the decays of the batches skipped since the coordinate was last updated before adding the new gradient.
+	 * Untouched weights do not move, so this is the same as decaying every batch up to float rounding;
+	 * diagonals of coordinates not touched since are left undecayed in memory until they are touched again.
+	 */
+	@Override
+	protected float getDiagonal(int index, float previousDiagonal, float gradient)
+	{
+		int skipped = batch_count - last_batches[index] - 1;
+		if (skipped > 0) previousDiagonal *= Math.pow(decaying_rate, skipped);
+		last_batches[index] = batch_count;
+		return getDiagonal(previousDiagonal, gradient);
+	}
+	
 	@Override
 	public String toString()
 	{
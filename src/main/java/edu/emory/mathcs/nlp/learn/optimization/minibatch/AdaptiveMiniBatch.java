@@ -15,12 +15,18 @@
  */
 package edu.emory.mathcs.nlp.learn.optimization.minibatch;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import edu.emory.mathcs.nlp.common.util.MathUtils;
 import edu.emory.mathcs.nlp.learn.optimization.OnlineOptimizer;
+import edu.emory.mathcs.nlp.learn.util.IndexSet;
 import edu.emory.mathcs.nlp.learn.util.Instance;
-import edu.emory.mathcs.nlp.learn.vector.IndexValuePair;
+import edu.emory.mathcs.nlp.learn.vector.SparseVector;
 import edu.emory.mathcs.nlp.learn.vector.Vector;
 import edu.emory.mathcs.nlp.learn.weight.WeightVector;
 
@@ -33,57 +39,90 @@ public abstract class AdaptiveMiniBatch extends OnlineOptimizer
 	protected final double batch_ratio;
 	protected WeightVector diagonals;
 	protected WeightVector gradients;
+	/** The coordinates of {@link #gradients} touched by the current batch. */
+	protected IndexSet touched;
 	protected int batch_size;
+	/** The number of batches updated so far, including the current one. */
+	protected int batch_count;
+	/** The number of batches up to which each weight has been last added to {@link #average_vector} for lazy averaging. */
+	protected int[] timestamps;
 	
+	/**
+	 * If averaged, {@link #average_vector} keeps the sum of each weight after every batch up to its timestamp,
+	 * which is settled only when the weight gets updated (see {@link #updateTouched()}).
+	 */
 	public AdaptiveMiniBatch(WeightVector weightVector, double batchRatio, boolean average, double learningRate)
 	{
 		super(weightVector, average, learningRate);
 		diagonals   = weightVector.createEmptyVector();
 		gradients   = weightVector.createEmptyVector();
+		touched     = new IndexSet(gradients.toArray().length);
 		batch_ratio = batchRatio;
 		batch_size  = 0;
+		batch_count = 0;
+		timestamps  = average ? new int[weightVector.toArray().length] : null;
 	}
 	
+	/** The remaining instances that do not fill a batch are updated together at the end of the epoch. */
 	@Override
-	public void train(List<Instance> instances, int epochs)
+	public void trainEpoch(List<Instance> instances)
 	{
-		int max = (int)Math.round(instances.size() * batch_ratio);
-		steps = 0;
-
-		for (; epochs>0; epochs--)
+		int max = Math.max(1, (int)Math.round(instances.size() * batch_ratio));
+		ForkJoinPool pool = (thread_size > 1) ? acquirePool(thread_size) : null;
+		List<Instance> batch = new ArrayList<>(max);
+		shuffle(instances);
+		
+		try
 		{
-			shuffle(instances);
-			
 			for (Instance instance : instances)
 			{
-				update(instance);
+				batch.add(instance);
 				
-				if (++batch_size >= max)
+				if (batch.size() >= max)
 				{
-					updateMiniBatch();
+					updateMiniBatch(batch, pool);
+					batch.clear();
 					steps++;
 				}
 			}
+			
+			if (!batch.isEmpty())
+			{
+				updateMiniBatch(batch, pool);
+				steps++;
+			}
 		}
-		
-		if (batch_size > 0)
+		finally
 		{
-			updateMiniBatch();
-			steps++;
+			if (pool != null) releasePool(pool);
 		}
-		
-		if (isAveraged() && steps > 0) average();
 	}
 	
-	private void average()
+	/** The averaged weights are the averages of the weights after every batch. */
+	@Override
+	public void getAveragedWeights(float[] weights)
 	{
-		float[] w = weight_vector .toArray();
+		float[] w = weight_vector.toArray();
+		
+		if (!isAveraged() || steps == 0)
+		{
+			if (weights != w) System.arraycopy(w, 0, weights, 0, w.length);
+			return;
+		}
+		
 		float[] a = average_vector.toArray();
+		float   n = 1f / steps;
 		
 		for (int i=0; i<w.length; i++)
-			w[i] = a[i] / steps;
-		
+			weights[i] = (a[i] + w[i] * (steps - timestamps[i])) * n;
+	}
+	
+	@Override
+	protected void resetAverage()
+	{
 		average_vector.fill(0);
+		Arrays.fill(timestamps, 0);
+		steps = 0;
 	}
 	
 //	============================== UPDATE ==============================
@@ -100,48 +139,133 @@ public abstract class AdaptiveMiniBatch extends OnlineOptimizer
 		updateGradientsHingeMultinomial(instance);
 	}
 	
-	protected void updateMiniBatch()
+	/** Computes the gradients of the batch on {@link #thread_size} threads if the pool is not null, and updates the weights. */
+	private void updateMiniBatch(List<Instance> batch, ForkJoinPool pool)
 	{
-		normalizeGraidents();
-		updateDiagonals();
-		updateWeightVector();
-		if (isAveraged()) updateAverageVector();
-
-		batch_size = 0;
-		gradients.fill(0);
+		if (pool == null)
+		{
+			for (Instance instance : batch)
+			{
+				update(instance);
+				batch_size++;
+			}
+			
+			updateMiniBatch();
+		}
+		else
+		{
+			batch_size = batch.size();
+			getGradients(batch, pool);
+			updateMiniBatch();
+		}
 	}
 	
-	private void normalizeGraidents()
+	/**
+	 * Computes the gradients of the batch in parallel; the weights do not change within a batch so the results are the same as sequential.
+	 * Each thread accumulates to its own sparse buffer, and all buffers are added to {@link #gradients} at the end.
+	 */
+	private void getGradients(List<Instance> batch, ForkJoinPool pool)
 	{
-		gradients.multiply(MathUtils.reciprocal(batch_size));
+		List<Future<SparseVector>> futures = new ArrayList<>(thread_size);
+		
+		for (int k=0; k<thread_size; k++)
+		{
+			final int shard = k;
+			
+			futures.add(pool.submit(() ->
+			{
+				SparseVector g = new SparseVector();
+				
+				for (int i=shard; i<batch.size(); i+=thread_size)
+					updateGradientsHinge(batch.get(i), g);
+				
+				return g;
+			}));
+		}
+		
+		try
+		{
+			for (Future<SparseVector> future : futures)
+				addGradients(future.get());
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		catch (ExecutionException e) {throw new IllegalStateException(e.getCause());}
 	}
 	
-	private void updateDiagonals()
+	/** Adds the sparse buffer to {@link #gradients}. */
+	private void addGradients(SparseVector buffer)
 	{
-		float[] d = diagonals.toArray();
 		float[] g = gradients.toArray();
+		int index;
 		
-		for (int i=0; i<d.length; i++)
-			d[i] = getDiagonal(d[i], g[i]);
+		for (int i=0; i<buffer.size(); i++)
+		{
+			index = buffer.indexAt(i);
+			g[index] += buffer.valueAt(i);
+			touched.add(index);
+		}
 	}
 	
-	private void updateWeightVector()
+	/** Updates the weights given the gradients of the batch, visiting only the coordinates in {@link #touched}. */
+	protected void updateMiniBatch()
 	{
+		batch_count++;
+		updateTouched();
+		batch_size = 0;
+		clearGradients();
+	}
+	
+	/** Normalizes the touched gradients and updates their diagonals and weights after settling their sums for averaging. */
+	private void updateTouched()
+	{
+		float[] a = isAveraged() ? average_vector.toArray() : null;
 		float[] w = weight_vector.toArray();
 		float[] d = diagonals.toArray();
 		float[] g = gradients.toArray();
- 		
-		for (int i=0; i<w.length; i++)
+		double  n = MathUtils.reciprocal(batch_size);
+		int i, j;
+		
+		for (j=0; j<touched.size(); j++)
+		{
+			i = touched.get(j);
+			
+			if (a != null)
+			{
+				a[i] += w[i] * (steps - timestamps[i]);
+				timestamps[i] = steps;
+			}
+			
+			g[i] *= n;
+			d[i] = getDiagonal(i, d[i], g[i]);
 			w[i] += learning_rate / (epsilon + Math.sqrt(d[i])) * g[i];
+		}
 	}
 	
-	private void updateAverageVector()
+	private void clearGradients()
 	{
-		average_vector.add(weight_vector);
+		float[] g = gradients.toArray();
+		
+		for (int j=0; j<touched.size(); j++)
+			g[touched.get(j)] = 0;
+		
+		touched.clear();
 	}
 	
 	protected abstract float getDiagonal(float previousDiagonal, float gradient);
 	
+	/**
+	 * Called for the touched coordinates only; the diagonals of the untouched coordinates are not updated.
+	 * @param index the index of the coordinate in the weight vector.
+	 */
+	protected float getDiagonal(int index, float previousDiagonal, float gradient)
+	{
+		return getDiagonal(previousDiagonal, gradient);
+	}
+	
 //	============================== GRADIENTS ==============================
 	
 	 protected void updateGradientsHingeBinomial(Instance instance)
@@ -154,11 +278,44 @@ public abstract class AdaptiveMiniBatch extends OnlineOptimizer
 		 {
 			 yp *= 2 - 1; // yp = {0, 1} -> {-1, 1}
 			 
-			 for (IndexValuePair xi : x)
-				 gradients.add(yp, xi.getIndex(), yp);
+			 for (int i=0; i<x.size(); i++)
+				 addGradient(yp, x.indexAt(i), yp);
 		 }
 	 }
 	
+	 /** Same as {@link #update(Instance)} but appends the hinge-loss gradients to the buffer whose indices are in the weight vector. */
+	 protected void updateGradientsHinge(Instance instance, SparseVector g)
+	 {
+		 Vector x = instance.getVector();
+		 int i, yp = instance.getLabel(), yn;
+		 
+		 if (weight_vector.isBinomial())
+		 {
+			 yn = binomialBestHingeLoss(instance);
+			 
+			 if (yp != yn)
+			 {
+				 yp *= 2 - 1; // yp = {0, 1} -> {-1, 1}
+				 
+				 for (i=0; i<x.size(); i++)
+					 g.add(weight_vector.indexOf(yp, x.indexAt(i)), yp);
+			 }
+		 }
+		 else
+		 {
+			 yn = multinomialBestHingeLoss(instance);
+			 
+			 if (yp != yn)
+			 {
+				 for (i=0; i<x.size(); i++)
+				 {
+					 g.add(weight_vector.indexOf(yp, x.indexAt(i)),  1);
+					 g.add(weight_vector.indexOf(yn, x.indexAt(i)), -1);
+				 }
+			 }
+		 }
+	 }
+	 
 	 protected void updateGradientsHingeMultinomial(Instance instance)
 	 {
 		 Vector x = instance.getVector();
@@ -167,11 +324,18 @@ public abstract class AdaptiveMiniBatch extends OnlineOptimizer
 
 		 if (yp != yn)
 		 {
-			 for (IndexValuePair xi : x)
+			 for (int i=0; i<x.size(); i++)
 			 {
-				 gradients.add(yp, xi.getIndex(),  1);
-				 gradients.add(yn, xi.getIndex(), -1);
+				 addGradient(yp, x.indexAt(i),  1);
+				 addGradient(yn, x.indexAt(i), -1);
 			 }
 		 }
 	 }
+	 
+	 private void addGradient(int y, int xi, float value)
+	 {
+		 int index = gradients.indexOf(y, xi);
+		 gradients.toArray()[index] += value;
+		 touched.add(index);
+	 }
 }
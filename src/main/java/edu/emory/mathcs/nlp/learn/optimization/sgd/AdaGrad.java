@@ -19,7 +19,7 @@ import java.util.StringJoiner;
 
 import edu.emory.mathcs.nlp.common.util.MathUtils;
 import edu.emory.mathcs.nlp.learn.util.Instance;
-import edu.emory.mathcs.nlp.learn.vector.IndexValuePair;
+import edu.emory.mathcs.nlp.learn.vector.BinarySparseVector;
 import edu.emory.mathcs.nlp.learn.vector.Vector;
 import edu.emory.mathcs.nlp.learn.weight.WeightVector;
 
@@ -69,8 +69,19 @@ public class AdaGrad extends SGDClassification
 	
 	private void updateDiagonals(int y, Vector x)
 	{
-		for (IndexValuePair p : x)
-			diagonals.add(y, p.getIndex(), MathUtils.sq(p.getValue()));
+		if (x instanceof BinarySparseVector)
+		{
+			BinarySparseVector b = (BinarySparseVector)x;
+			updateDiagonals(y, b.getValuedVector());
+			
+			for (int i=0; i<b.binarySize(); i++)
+				diagonals.add(y, b.binaryIndexAt(i), 1);
+		}
+		else
+		{
+			for (int i=0; i<x.size(); i++)
+				diagonals.add(y, x.indexAt(i), MathUtils.sq(x.valueAt(i)));
+		}
 	}
 	
 	@Override
@@ -18,7 +18,6 @@ package edu.emory.mathcs.nlp.learn.optimization.sgd;
 import java.util.StringJoiner;
 
 import edu.emory.mathcs.nlp.learn.util.Instance;
-import edu.emory.mathcs.nlp.learn.vector.IndexValuePair;
 import edu.emory.mathcs.nlp.learn.vector.Vector;
 import edu.emory.mathcs.nlp.learn.weight.WeightVector;
 
@@ -39,18 +38,17 @@ public class LogisticRegression extends StochasticGradientDescent
 		int    y = instance.getLabel();
 		double d = learning_rate * (y - weight_vector.scores(x)[0]), g;
 		
-		for (IndexValuePair xi : x)
+		for (int j=0; j<x.size(); j++)
 		{
-			g = d * xi.getValue();
-			weight_vector.add(y, xi.getIndex(), g);
-			if (isAveraged()) average_vector.add(y, xi.getIndex(), g * steps);
+			g = d * x.valueAt(j);
+			add(y, x.indexAt(j), g);
 		}
 	}
 	
 	@Override
 	protected void updateMultinomial(Instance instance)
 	{
-		int      i, size = weight_vector.labelSize();
+		int      i, j, xi, size = weight_vector.labelSize();
 		Vector   x = instance.getVector();
 		double[] d = weight_vector.scores(x);
 		double   g;
@@ -61,13 +59,14 @@ public class LogisticRegression extends StochasticGradientDescent
 			d[i] = learning_rate * g;
 		}
 		
-		for (IndexValuePair xi : x)
+		for (j=0; j<x.size(); j++)
 		{
+			xi = x.indexAt(j);
+			
 			for (i=0; i<size; i++)
 			{
-				g = d[i] * xi.getValue();
-				weight_vector.add(i, xi.getIndex(), g);
-				if (isAveraged()) average_vector.add(i, xi.getIndex(), g * steps);
+				g = d[i] * x.valueAt(j);
+				add(i, xi, g);
 			}
 		}
 	}
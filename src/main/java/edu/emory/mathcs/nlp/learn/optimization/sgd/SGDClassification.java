@@ -15,7 +15,7 @@
  */
 package edu.emory.mathcs.nlp.learn.optimization.sgd;
 
-import edu.emory.mathcs.nlp.learn.vector.IndexValuePair;
+import edu.emory.mathcs.nlp.learn.vector.BinarySparseVector;
 import edu.emory.mathcs.nlp.learn.vector.Vector;
 import edu.emory.mathcs.nlp.learn.weight.WeightVector;
 
@@ -31,33 +31,77 @@ public abstract class SGDClassification extends StochasticGradientDescent
 
 	protected void update(int y, Vector x)
 	{
+		if (x instanceof BinarySparseVector)
+		{
+			BinarySparseVector b = (BinarySparseVector)x;
+			update(y, b.getValuedVector());
+			updateBinary(y, b);
+			return;
+		}
+		
+		int i, xi, size = x.size();
 		double g;
 		
-		for (IndexValuePair xi : x)
+		for (i=0; i<size; i++)
 		{
-			g = y * getGradient(y, xi.getIndex()) * xi.getValue();
-			weight_vector.add(y, xi.getIndex(), g);
-			if (isAveraged()) average_vector.add(y, xi.getIndex(), g * steps);
+			xi = x.indexAt(i);
+			g  = y * getGradient(y, xi) * x.valueAt(i);
+			add(y, xi, g);
 		}
 	}
 	
 	protected void update(int yp, int yn, Vector x)
 	{
+		if (x instanceof BinarySparseVector)
+		{
+			BinarySparseVector b = (BinarySparseVector)x;
+			update(yp, yn, b.getValuedVector());
+			updateBinary(yp, yn, b);
+			return;
+		}
+		
+		int i, xi, size = x.size();
+		double gp, gn;
+		
+		for (i=0; i<size; i++)
+		{
+			xi = x.indexAt(i);
+			gp =  getGradient(yp, xi) * x.valueAt(i);
+			gn = -getGradient(yn, xi) * x.valueAt(i);
+			
+			add(yp, xi, gp);
+			add(yn, xi, gn);
+		}
+	}
+	
+	/** Called by {@link #update(int, Vector)}; the feature values are all 1. */
+	private void updateBinary(int y, BinarySparseVector x)
+	{
+		int i, xi, size = x.binarySize();
+		double g;
+		
+		for (i=0; i<size; i++)
+		{
+			xi = x.binaryIndexAt(i);
+			g  = y * getGradient(y, xi);
+			add(y, xi, g);
+		}
+	}
+	
+	/** Called by {@link #update(int, int, Vector)}; the feature values are all 1. */
+	private void updateBinary(int yp, int yn, BinarySparseVector x)
+	{
+		int i, xi, size = x.binarySize();
 		double gp, gn;
 		
-		for (IndexValuePair xi : x)
+		for (i=0; i<size; i++)
 		{
-			gp =  getGradient(yp, xi.getIndex()) * xi.getValue();
-			gn = -getGradient(yn, xi.getIndex()) * xi.getValue();
+			xi = x.binaryIndexAt(i);
+			gp =  getGradient(yp, xi);
+			gn = -getGradient(yn, xi);
 			
-			weight_vector.add(yp, xi.getIndex(), gp);
-			weight_vector.add(yn, xi.getIndex(), gn);
-							
-			if (isAveraged())
-			{
-				average_vector.add(yp, xi.getIndex(), gp * steps);
-				average_vector.add(yn, xi.getIndex(), gn * steps);
-			}
+			add(yp, xi, gp);
+			add(yn, xi, gn);
 		}
 	}
 	
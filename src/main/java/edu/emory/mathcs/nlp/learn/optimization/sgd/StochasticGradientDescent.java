@@ -15,7 +15,12 @@
  */
 package edu.emory.mathcs.nlp.learn.optimization.sgd;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import edu.emory.mathcs.nlp.learn.optimization.OnlineOptimizer;
 import edu.emory.mathcs.nlp.learn.util.Instance;
@@ -24,41 +29,148 @@ import edu.emory.mathcs.nlp.learn.weight.WeightVector;
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
  */
-public abstract class StochasticGradientDescent extends OnlineOptimizer
+public abstract class StochasticGradientDescent extends OnlineOptimizer implements Cloneable
 {
+	/** The step at which each weight has been last added to {@link #average_vector} for lazy averaging. */
+	protected int[] timestamps;
+	
+	/**
+	 * If averaged, {@link #average_vector} keeps the sum of each weight over the steps up to its timestamp,
+	 * which is settled only when the weight gets updated (see {@link #add(int, int, double)}).
+	 */
 	public StochasticGradientDescent(WeightVector weightVector, boolean average, double learningRate)
 	{
 		super(weightVector, average, learningRate);
+		timestamps = average ? new int[weightVector.toArray().length] : null;
+		steps = 1;
 	}
 
 	@Override
-	public void train(List<Instance> instances, int epochs)
+	public void trainEpoch(List<Instance> instances)
 	{
-		steps = 1;
+		shuffle(instances);
 		
-		for (; epochs>0; epochs--)
+		if (thread_size > 1)
+			trainHogwild(instances);
+		else
 		{
-			shuffle(instances);
-			
 			for (Instance instance : instances)
 			{
 				update(instance);
 				steps++;
 			}
 		}
+	}
+	
+	/** Adds the gradient to the weight of the label and the feature after settling its sum for averaging. */
+	protected void add(int y, int xi, double gradient)
+	{
+		float[] w = weight_vector.toArray();
+		int index = weight_vector.indexOf(y, xi);
+		
+		if (isAveraged())
+		{
+			average_vector.toArray()[index] += w[index] * (steps - timestamps[index]);
+			timestamps[index] = steps;
+		}
+		
+		w[index] += gradient;
+	}
+	
+	/**
+	 * Updates the shared weight vector from {@link #thread_size} threads without locking (Hogwild).
+	 * The k'th thread takes every {@link #thread_size}'th instance starting at k from the shuffled instances.
+	 * Each thread works on a shallow copy of this optimizer that shares all vectors (e.g., weights, averages, diagonals)
+	 * but has its own {@link #steps}, set to the position of the instance so that averaging sees the same steps as sequential training.
+	 * The threads come from the shared pool if set (see {@link #setPool(ForkJoinPool)}); otherwise, from a pool created for the epoch.
+	 */
+	private void trainHogwild(List<Instance> instances)
+	{
+		List<Future<?>> futures = new ArrayList<>(thread_size);
+		ForkJoinPool pool = acquirePool(thread_size);
+		
+		try
+		{
+			for (int k=0; k<thread_size; k++)
+				futures.add(pool.submit(new HogwildTask(instances, k)));
+			
+			for (Future<?> future : futures)
+				future.get();
+		}
+		catch (InterruptedException e)
+		{
+			for (Future<?> future : futures) future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		catch (ExecutionException e) {throw new IllegalStateException(e.getCause());}
+		finally
+		{
+			releasePool(pool);
+		}
+		
+		steps += instances.size();
+	}
+	
+	class HogwildTask implements Runnable
+	{
+		List<Instance> instances;
+		int shard;
+		
+		/** @param shard the index of the first instance to train. */
+		public HogwildTask(List<Instance> instances, int shard)
+		{
+			this.instances = instances;
+			this.shard = shard;
+		}
 		
-		if (isAveraged() && steps > 0) average();
+		@Override
+		public void run()
+		{
+			StochasticGradientDescent sgd = copy();
+			
+			for (int i=shard; i<instances.size(); i+=thread_size)
+			{
+				sgd.steps = steps + i;
+				sgd.update(instances.get(i));
+			}
+		}
 	}
 	
-	private void average()
+	/** @return a shallow copy of this optimizer sharing all vectors. */
+	private StochasticGradientDescent copy()
 	{
-		float[] w = weight_vector .toArray();
+		try
+		{
+			return (StochasticGradientDescent)clone();
+		}
+		catch (CloneNotSupportedException e) {throw new IllegalStateException(e);}
+	}
+	
+	/** The averaged weights are the averages of the weights over all steps, including the weights before training. */
+	@Override
+	public void getAveragedWeights(float[] weights)
+	{
+		float[] w = weight_vector.toArray();
+		
+		if (!isAveraged() || steps <= 1)
+		{
+			if (weights != w) System.arraycopy(w, 0, weights, 0, w.length);
+			return;
+		}
+		
 		float[] a = average_vector.toArray();
 		float   n = 1f / steps;
 		
 		for (int i=0; i<w.length; i++)
-			w[i] -= a[i] * n;
-		
+			weights[i] = (a[i] + w[i] * (steps - timestamps[i])) * n;
+	}
+	
+	@Override
+	protected void resetAverage()
+	{
 		average_vector.fill(0);
+		Arrays.fill(timestamps, 0);
+		steps = 1;
 	}
 }
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learn.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes primitives in little-endian to a channel so that they can be read from a memory-mapped {@link ByteBuffer}.
+ * Byte arrays are padded to multiples of 4 bytes so that the following ints and floats stay aligned.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class BinaryWriter implements Closeable
+{
+	private WritableByteChannel channel;
+	private ByteBuffer buffer;
+	
+	public BinaryWriter(WritableByteChannel channel)
+	{
+		this.channel = channel;
+		buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	public void writeInt(int value) throws IOException
+	{
+		ensureRemaining(Integer.BYTES);
+		buffer.putInt(value);
+	}
+	
+	public void writeInts(int[] values) throws IOException
+	{
+		for (int value : values) writeInt(value);
+	}
+	
+	public void writeFloats(float[] values) throws IOException
+	{
+		for (float value : values)
+		{
+			ensureRemaining(Float.BYTES);
+			buffer.putFloat(value);
+		}
+	}
+	
+	/** Writes the length, the bytes, and the padding. */
+	public void writeBytes(byte[] bytes) throws IOException
+	{
+		writeInt(bytes.length);
+		writeRawBytes(bytes);
+		writePadding(bytes.length);
+	}
+	
+	/** Writes the bytes without the length or the padding. */
+	public void writeRawBytes(byte[] bytes) throws IOException
+	{
+		int offset = 0, length;
+		
+		while (offset < bytes.length)
+		{
+			ensureRemaining(1);
+			length = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+	
+	/** Pads 0s after the bytes of the length to a multiple of 4 bytes. */
+	public void writePadding(int length) throws IOException
+	{
+		for (; (length & 3) != 0; length++)
+		{
+			ensureRemaining(1);
+			buffer.put((byte)0);
+		}
+	}
+	
+	/** Writes the string in UTF-8 using {@link #writeBytes(byte[])}. */
+	public void writeString(String s) throws IOException
+	{
+		writeBytes(s.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/** Reads the bytes written by {@link #writeBytes(byte[])}. */
+	static public byte[] readBytes(ByteBuffer in)
+	{
+		byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		skipPadding(in, bytes.length);
+		return bytes;
+	}
+	
+	/** Reads the string written by {@link #writeString(String)}. */
+	static public String readString(ByteBuffer in)
+	{
+		return new String(readBytes(in), StandardCharsets.UTF_8);
+	}
+	
+	/** Skips the padding written by {@link #writePadding(int)}. */
+	static public void skipPadding(ByteBuffer in, int length)
+	{
+		in.position(in.position() + ((4 - (length & 3)) & 3));
+	}
+	
+	public void flush() throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		flush();
+		channel.close();
+	}
+	
+	private void ensureRemaining(int size) throws IOException
+	{
+		if (buffer.remaining() < size) flush();
+	}
+}
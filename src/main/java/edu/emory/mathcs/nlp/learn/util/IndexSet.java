@@ -0,0 +1,78 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learn.util;
+
+import java.util.Arrays;
+
+/**
+ * Set of indices in [0, capacity) using a bitset for membership and an array for iteration,
+ * so that adding, iterating, and clearing cost O(size) instead of O(capacity).
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class IndexSet
+{
+	private static final int DEFAULT_CAPACITY = 16;
+	private long[] bits;
+	private int[]  indices;
+	private int    size;
+	
+	/** @param capacity the upper bound (exclusive) of the indices. */
+	public IndexSet(int capacity)
+	{
+		bits    = new long[(capacity + 63) >>> 6];
+		indices = new int[DEFAULT_CAPACITY];
+		size    = 0;
+	}
+	
+	/** Adds the index if it is not in this set. */
+	public void add(int index)
+	{
+		int  w = index >>> 6;
+		long m = 1L << index;
+		
+		if ((bits[w] & m) == 0)
+		{
+			bits[w] |= m;
+			if (size == indices.length) indices = Arrays.copyOf(indices, size + (size >> 1));
+			indices[size++] = index;
+		}
+	}
+	
+	public boolean contains(int index)
+	{
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+	
+	/** @return the i'th index in the order of insertion. */
+	public int get(int i)
+	{
+		return indices[i];
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	/** Removes all indices by resetting only the bits that have been set. */
+	public void clear()
+	{
+		for (int i=0; i<size; i++)
+			bits[indices[i] >>> 6] = 0;
+		
+		size = 0;
+	}
+}
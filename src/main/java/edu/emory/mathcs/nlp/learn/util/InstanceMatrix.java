@@ -0,0 +1,104 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learn.util;
+
+import java.util.List;
+
+import edu.emory.mathcs.nlp.learn.vector.Vector;
+
+/**
+ * Immutable instances in the compressed sparse row format, which can be shared by multiple threads.
+ * The features of the i'th instance are stored in [{@link #begin(int)}, {@link #end(int)}).
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class InstanceMatrix
+{
+	private final int[]   labels;
+	private final int[]   offsets;
+	private final int[]   indices;
+	private final float[] values;
+	private final float[] squared_norms;
+	
+	public InstanceMatrix(List<Instance> instances)
+	{
+		int i, j, k, size = instances.size();
+		Vector x;
+		
+		labels  = new int[size];
+		offsets = new int[size+1];
+		
+		for (i=0; i<size; i++)
+			offsets[i+1] = offsets[i] + instances.get(i).getVector().size();
+		
+		indices = new int  [offsets[size]];
+		values  = new float[offsets[size]];
+		squared_norms = new float[size];
+		
+		for (i=0,k=0; i<size; i++)
+		{
+			labels[i] = instances.get(i).getLabel();
+			x = instances.get(i).getVector();
+			
+			for (j=0; j<x.size(); j++,k++)
+			{
+				indices[k] = x.indexAt(j);
+				values [k] = x.valueAt(j);
+				squared_norms[i] += values[k] * values[k];
+			}
+		}
+	}
+	
+	/** @return the number of instances. */
+	public int size()
+	{
+		return labels.length;
+	}
+	
+	public int getLabel(int i)
+	{
+		return labels[i];
+	}
+	
+	/** @return the sum of the squared feature values of the i'th instance. */
+	public float getSquaredNorm(int i)
+	{
+		return squared_norms[i];
+	}
+	
+	/** @return the position of the first feature of the i'th instance. */
+	public int begin(int i)
+	{
+		return offsets[i];
+	}
+	
+	/** @return the position after the last feature of the i'th instance. */
+	public int end(int i)
+	{
+		return offsets[i+1];
+	}
+	
+	/** @return the feature index at the position. */
+	public int indexAt(int k)
+	{
+		return indices[k];
+	}
+	
+	/** @return the feature value at the position. */
+	public float valueAt(int k)
+	{
+		return values[k];
+	}
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learn.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.RandomAccess;
+
+import edu.emory.mathcs.nlp.learn.vector.BinarySparseVector;
+import edu.emory.mathcs.nlp.learn.vector.Vector;
+
+/**
+ * Append-only training instances in the compressed sparse row format (labels, row offsets, feature indices, feature values),
+ * stored outside of the Java heap in a memory-mapped temporary file.
+ * As in {@link BinarySparseVector}, only the features whose values are not 1 keep their values; the other features are stored as indices.
+ * The instances are accessed in the order of a permutation of row IDs, which is what {@link #shuffle(Random)} shuffles;
+ * {@link #get(int)} reads the row into a new vector, so no instance is retained on the heap.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class InstanceStore extends AbstractList<Instance> implements RandomAccess, Closeable
+{
+	static private final int DEFAULT_SEGMENT_BITS = 22;
+	private final int segment_bits;
+	private RandomAccessFile file;
+	private File file_path;
+	private long file_size;
+	
+	private Column labels;
+	/** offsets[row]: the index of the first feature of the row in {@link #indices}. */
+	private Column offsets;
+	/** value_offsets[row]: the index of the first value of the row in {@link #values}. */
+	private Column value_offsets;
+	/** Indices of the valued features followed by indices of the binary features of each row. */
+	private Column indices;
+	/** Values of the valued features of each row. */
+	private Column values;
+	/** order[i]: the row ID of the i'th instance. */
+	private int[] order;
+	private int   size;
+	
+	/** Stores the instances in a temporary file in the directory, which is deleted when this store is closed. */
+	public InstanceStore(File directory)
+	{
+		this(directory, DEFAULT_SEGMENT_BITS);
+	}
+	
+	/**
+	 * @param directory the directory of the temporary file; if null, the default temporary-file directory is used.
+	 * @param segmentBits each column is mapped in segments of 2^segmentBits values.
+	 */
+	InstanceStore(File directory, int segmentBits)
+	{
+		segment_bits = segmentBits;
+		
+		try
+		{
+			file_path = File.createTempFile("instances", ".csr", directory);
+			file_path.deleteOnExit();
+			file = new RandomAccessFile(file_path, "rw");
+		}
+		catch (IOException e) {throw new IllegalStateException(e);}
+		
+		labels        = new Column();
+		offsets       = new Column();
+		value_offsets = new Column();
+		indices       = new Column();
+		values        = new Column();
+		order         = new int[16];
+		offsets.add(0);
+		value_offsets.add(0);
+	}
+	
+	/** Appends the instance; the order of the instances is the order of addition until {@link #shuffle(Random)}. */
+	@Override
+	public boolean add(Instance instance)
+	{
+		Vector x = instance.getVector();
+		int i, valueEnd = value_offsets.get(size), end = offsets.get(size) + x.size();
+		if (end < 0) throw new IllegalStateException("Too many features to be stored: "+((long)offsets.get(size) + x.size()));
+		
+		for (i=0; i<x.size(); i++)
+		{
+			if (x.valueAt(i) != 1f)
+			{
+				indices.add(x.indexAt(i));
+				values .add(Float.floatToRawIntBits(x.valueAt(i)));
+				valueEnd++;
+			}
+		}
+		
+		for (i=0; i<x.size(); i++)
+		{
+			if (x.valueAt(i) == 1f)
+				indices.add(x.indexAt(i));
+		}
+		
+		labels       .add(instance.getLabel());
+		offsets      .add(end);
+		value_offsets.add(valueEnd);
+		if (size == order.length) order = Arrays.copyOf(order, size + (size >> 1));
+		order[size] = size;
+		size++;
+		modCount++;
+		return true;
+	}
+	
+	/** @return the i'th instance in the current order, whose features are read from this store. */
+	@Override
+	public Instance get(int i)
+	{
+		if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Index: "+i+", Size: "+size);
+		int row = order[i], begin = offsets.get(row), end = offsets.get(row+1);
+		int valueBegin = value_offsets.get(row), valued = value_offsets.get(row+1) - valueBegin;
+		BinarySparseVector x = new BinarySparseVector(end - begin - valued);
+		int j;
+		
+		for (j=0; j<valued; j++)
+			x.getValuedVector().add(indices.get(begin + j), Float.intBitsToFloat(values.get(valueBegin + j)));
+		
+		for (j=begin+valued; j<end; j++)
+			x.add(indices.get(j));
+		
+		return new Instance(labels.get(row), x);
+	}
+	
+	@Override
+	public int size()
+	{
+		return size;
+	}
+	
+	/** Shuffles the row IDs the same way {@link java.util.Collections#shuffle(List, Random)} shuffles a list. */
+	public void shuffle(Random random)
+	{
+		int i, j, t;
+		
+		for (i=size; i>1; i--)
+		{
+			j = random.nextInt(i);
+			t = order[i-1]; order[i-1] = order[j]; order[j] = t;
+		}
+	}
+	
+	/** Deletes the temporary file if exists. */
+	@Override
+	public void close()
+	{
+		if (file != null)
+		{
+			try
+			{
+				file.close();
+			}
+			catch (IOException e) {e.printStackTrace();}
+			
+			file_path.delete();
+			file = null;
+		}
+	}
+	
+	/** @return the temporary file storing the instances. */
+	File getFile()
+	{
+		return file_path;
+	}
+	
+	/** Maps a segment of the specific number of bytes at the end of the file. */
+	private ByteBuffer allocate(int bytes)
+	{
+		try
+		{
+			ByteBuffer b = file.getChannel().map(FileChannel.MapMode.READ_WRITE, file_size, bytes).order(ByteOrder.nativeOrder());
+			file_size += bytes;
+			return b;
+		}
+		catch (IOException e) {throw new IllegalStateException(e);}
+	}
+	
+	/** Append-only sequence of 32-bit values in segments. */
+	private class Column
+	{
+		private List<ByteBuffer> segments = new ArrayList<>();
+		private long size = 0;
+		
+		public void add(int value)
+		{
+			int offset = (int)(size & ((1 << segment_bits) - 1));
+			if (offset == 0) segments.add(allocate(Integer.BYTES << segment_bits));
+			segments.get(segments.size()-1).putInt(offset * Integer.BYTES, value);
+			size++;
+		}
+		
+		public int get(long i)
+		{
+			return segments.get((int)(i >>> segment_bits)).getInt((int)(i & ((1 << segment_bits) - 1)) * Integer.BYTES);
+		}
+	}
+}
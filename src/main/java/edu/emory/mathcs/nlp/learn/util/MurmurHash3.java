@@ -0,0 +1,44 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learn.util;
+
+/**
+ * The 64-bit finalization mix of MurmurHash3 by Austin Appleby, which spreads (type, hash) pairs over hash buckets.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class MurmurHash3
+{
+	private MurmurHash3() {}
+	
+	/**
+	 * @return the 64-bit hash of the (type, hash) pair using the finalization mix of MurmurHash3.
+	 * Only the 64 input bits are mixed, so pairs with the same input (e.g., strings with the same {@link String#hashCode()}) get the same hash.
+	 */
+	static public long hash64(int type, int hash)
+	{
+		return fmix64(((long)type << 32) | (hash & 0xFFFFFFFFL));
+	}
+	
+	static private long fmix64(long k)
+	{
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learn.util;
+
+import edu.emory.mathcs.nlp.learn.vector.BinarySparseVector;
+
+/**
+ * Scratch space reused across predictions so that decoding does not allocate per call.
+ * The returned predictions are overwritten by the next call; copy them to keep them.
+ * This class is not thread-safe; each decoding thread should have its own context.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class PredictionContext
+{
+	private BinarySparseVector vector;
+	private float[]            scores;
+	private Prediction         first;
+	private StringPrediction   label;
+	
+	public PredictionContext()
+	{
+		vector = new BinarySparseVector();
+		scores = new float[0];
+		first  = new Prediction(-1, 0);
+		label  = new StringPrediction(null, 0);
+	}
+	
+	/** @return the reusable feature vector. */
+	public BinarySparseVector getVector()
+	{
+		return vector;
+	}
+	
+	/** @return the score buffer whose size is greater or equal to the specific size. */
+	public float[] getScores(int size)
+	{
+		if (scores.length < size) scores = new float[size];
+		return scores;
+	}
+	
+	/** @return the best prediction. */
+	public Prediction getFirst()
+	{
+		return first;
+	}
+	
+	/** @return the string label of the best prediction. */
+	public StringPrediction getStringPrediction()
+	{
+		return label;
+	}
+}
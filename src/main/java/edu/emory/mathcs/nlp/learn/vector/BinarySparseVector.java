@@ -0,0 +1,167 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learn.vector;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.StringJoiner;
+
+import edu.emory.mathcs.nlp.common.constant.StringConst;
+
+/**
+ * Sparse vector whose features mostly have the value 1 (e.g., indicator features).
+ * Binary features are stored as indices only; the bias and explicitly weighted features are kept in {@link #getValuedVector()}.
+ * The entries in {@link #getValuedVector()} come first when iterating by {@link #indexAt(int)} and {@link #valueAt(int)}.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class BinarySparseVector implements Vector
+{
+	private static final long serialVersionUID = 2869178329052395137L;
+	private static final int DEFAULT_CAPACITY = 16;
+	private SparseVector valued_vector;
+	private int[] indices;
+	private int   size;
+	
+	public BinarySparseVector()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+	
+	public BinarySparseVector(int initialCapacity)
+	{
+		valued_vector = new SparseVector(0);
+		indices = new int[initialCapacity];
+		size    = 0;
+	}
+	
+	/** Adds a binary feature whose value is 1. */
+	public void add(int index)
+	{
+		if (size == indices.length) indices = Arrays.copyOf(indices, Math.max(DEFAULT_CAPACITY, size + (size >> 1)));
+		indices[size++] = index;
+	}
+	
+	/** Adds the feature as binary if the value is 1; otherwise, adds it to {@link #getValuedVector()}. */
+	public void add(int index, float value)
+	{
+		if (value == 1f)	add(index);
+		else				valued_vector.add(index, value);
+	}
+	
+	/** @return the vector containing features whose values are not 1 (e.g., bias). */
+	public SparseVector getValuedVector()
+	{
+		return valued_vector;
+	}
+	
+	/** @return the number of binary features. */
+	public int binarySize()
+	{
+		return size;
+	}
+	
+	/** @return the index of the i'th binary feature. */
+	public int binaryIndexAt(int i)
+	{
+		return indices[i];
+	}
+	
+	@Override
+	public int size()
+	{
+		return valued_vector.size() + size;
+	}
+	
+	@Override
+	public int indexAt(int i)
+	{
+		int v = valued_vector.size();
+		return (i < v) ? valued_vector.indexAt(i) : indices[i-v];
+	}
+	
+	@Override
+	public float valueAt(int i)
+	{
+		int v = valued_vector.size();
+		return (i < v) ? valued_vector.valueAt(i) : 1f;
+	}
+	
+	/** Sorts the binary and valued features in ascending order of their indices. */
+	public void sort()
+	{
+		Arrays.sort(indices, 0, size);
+		valued_vector.sort();
+	}
+	
+	/** Shrinks the backing arrays to the number of entries. */
+	public void trimToSize()
+	{
+		if (size < indices.length) indices = Arrays.copyOf(indices, size);
+		valued_vector.trimToSize();
+	}
+	
+	/** Removes all entries from this vector; the backing arrays are kept. */
+	public void clear()
+	{
+		size = 0;
+		valued_vector.clear();
+	}
+	
+	@Override
+	public Iterator<IndexValuePair> iterator()
+	{
+		Iterator<IndexValuePair> it = new Iterator<IndexValuePair>()
+		{
+			private int index = 0;
+			
+			@Override
+			public boolean hasNext()
+			{
+				return index < size();
+			}
+			
+			@Override
+			public IndexValuePair next()
+			{
+				if (!hasNext()) throw new NoSuchElementException();
+				IndexValuePair p = new IndexValuePair(indexAt(index), valueAt(index));
+				index++;
+				return p;
+			}
+			
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+		
+		return it;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringJoiner join = new StringJoiner(StringConst.SPACE);
+		if (valued_vector.size() > 0) join.add(valued_vector.toString());
+		
+		for (int i=0; i<size; i++)
+			join.add(Integer.toString(indices[i]));
+		
+		return join.toString();
+	}
+}
@@ -41,11 +41,24 @@ public class DenseVector implements Vector
 		vector[index] = value;
 	}
 	
+	@Override
 	public int size()
 	{
 		return vector.length;
 	}
 	
+	@Override
+	public int indexAt(int i)
+	{
+		return i;
+	}
+	
+	@Override
+	public float valueAt(int i)
+	{
+		return vector[i];
+	}
+	
 	@Override
 	public Iterator<IndexValuePair> iterator()
 	{
@@ -15,66 +15,164 @@
  */
 package edu.emory.mathcs.nlp.learn.vector;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.StringJoiner;
 
 import edu.emory.mathcs.nlp.common.constant.StringConst;
-import edu.emory.mathcs.nlp.common.util.Joiner;
 
 /**
+ * Sparse vector backed by parallel arrays of indices and values.
+ * Use {@link #indexAt(int)} and {@link #valueAt(int)} for allocation-free iteration.
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
  */
 public class SparseVector implements Vector
 {
-	private static final long serialVersionUID = -1427072719834760188L;
-	private List<IndexValuePair> vector;
+	private static final long serialVersionUID = -7520337826377506298L;
+	private static final int DEFAULT_CAPACITY = 16;
+	private int[]   indices;
+	private float[] values;
+	private int     size;
 	
 	public SparseVector()
 	{
-		vector = new ArrayList<>();
+		this(DEFAULT_CAPACITY);
 	}
 	
-	public IndexValuePair get(int index)
+	public SparseVector(int initialCapacity)
 	{
-		return vector.get(index);
+		indices = new int  [initialCapacity];
+		values  = new float[initialCapacity];
+		size    = 0;
+	}
+	
+	/** @return a new index-value pair of the i'th entry; use {@link #indexAt(int)} and {@link #valueAt(int)} in loops. */
+	public IndexValuePair get(int i)
+	{
+		return new IndexValuePair(indexAt(i), valueAt(i));
+	}
+	
+	@Override
+	public int indexAt(int i)
+	{
+		return indices[i];
+	}
+	
+	@Override
+	public float valueAt(int i)
+	{
+		return values[i];
 	}
 	
 	public void add(int index)
 	{
-		add(new IndexValuePair(index));
+		add(index, 1f);
 	}
 	
 	public void add(int index, float value)
 	{
-		add(new IndexValuePair(index, value));
+		if (size == indices.length) grow();
+		indices[size] = index;
+		values [size] = value;
+		size++;
 	}
 	
 	public void add(IndexValuePair item)
 	{
-		vector.add(item);
+		add(item.getIndex(), item.getValue());
 	}
 	
+	private void grow()
+	{
+		int capacity = Math.max(DEFAULT_CAPACITY, indices.length + (indices.length >> 1));
+		indices = Arrays.copyOf(indices, capacity);
+		values  = Arrays.copyOf(values , capacity);
+	}
+	
+	/** Shrinks the backing arrays to the number of entries. */
+	public void trimToSize()
+	{
+		if (size < indices.length)
+		{
+			indices = Arrays.copyOf(indices, size);
+			values  = Arrays.copyOf(values , size);
+		}
+	}
+	
+	/** Removes all entries from this vector; the backing arrays are kept. */
+	public void clear()
+	{
+		size = 0;
+	}
+	
+	@Override
 	public int size()
 	{
-		return vector.size();
+		return size;
 	}
 
+	/** Sorts the entries in ascending order of their indices. */
 	public void sort()
 	{
-		Collections.sort(vector);
+		int i, j, index;
+		float value;
+		
+		// insertion sort on the parallel arrays; feature vectors are short
+		for (i=1; i<size; i++)
+		{
+			index = indices[i];
+			value = values [i];
+			
+			for (j=i-1; j>=0 && indices[j] > index; j--)
+			{
+				indices[j+1] = indices[j];
+				values [j+1] = values [j];
+			}
+			
+			indices[j+1] = index;
+			values [j+1] = value;
+		}
 	}
 	
 	@Override
 	public Iterator<IndexValuePair> iterator()
 	{
-		return vector.iterator();
+		Iterator<IndexValuePair> it = new Iterator<IndexValuePair>()
+		{
+			private int index = 0;
+			
+			@Override
+			public boolean hasNext()
+			{
+				return index < size;
+			}
+			
+			@Override
+			public IndexValuePair next()
+			{
+				if (!hasNext()) throw new NoSuchElementException();
+				return get(index++);
+			}
+			
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+		
+		return it;
 	}
 
 	@Override
 	public String toString()
 	{
-		return Joiner.join(vector, StringConst.SPACE);
+		StringJoiner join = new StringJoiner(StringConst.SPACE);
+		
+		for (int i=0; i<size; i++)
+			join.add(indices[i]+":"+values[i]);
+		
+		return join.toString();
 	}
 }
@@ -26,12 +26,24 @@ public class StringItem implements Serializable, Comparable<StringItem>
 	private int    type;
 	private String value;
 	private float  weight;
+	/** If not null, {@link #value} is the conjunction of these parts joined by {@link #DELIM}, which is built on demand. */
+	private String[] parts;
+	
+	/** The delimiter between the parts of a conjunction value. */
+	static public final char DELIM = '_';
 	
 	public StringItem(int type, String value)
 	{
 		set(type, value, 1f);
 	}
 	
+	/** Creates a conjunction item whose value is built by joining the parts only if {@link #getValue()} gets called. */
+	public StringItem(int type, String[] parts)
+	{
+		set(type, null, 1f);
+		this.parts = parts;
+	}
+	
 	public StringItem(int type, String value, float weight)
 	{
 		set(type, value, weight);
@@ -44,9 +56,42 @@ public class StringItem implements Serializable, Comparable<StringItem>
 
 	public String getValue()
 	{
+		if (value == null && parts != null)
+		{
+			StringBuilder build = new StringBuilder(parts[0]);
+			
+			for (int i=1; i<parts.length; i++)
+				build.append(DELIM).append(parts[i]);
+			
+			value = build.toString();
+		}
+		
 		return value;
 	}
 	
+	/** @return the same as {@code getValue().hashCode()} but computed from the hash codes of the parts without joining them. */
+	public int getValueHash()
+	{
+		if (value != null || parts == null) return value.hashCode();
+		int i, h = parts[0].hashCode();
+		
+		for (i=1; i<parts.length; i++)
+			h = (h * 31 + DELIM) * pow31(parts[i].length()) + parts[i].hashCode();
+		
+		return h;
+	}
+	
+	/** @return 31^n in the int arithmetic of {@link String#hashCode()}. */
+	static private int pow31(int n)
+	{
+		int p = 1, b = 31;
+		
+		for (; n > 0; n >>= 1, b *= b)
+			if ((n & 1) == 1) p *= b;
+		
+		return p;
+	}
+	
 	public float getWeight()
 	{
 		return weight;
@@ -60,6 +105,7 @@ public class StringItem implements Serializable, Comparable<StringItem>
 	public void setValue(String value)
 	{
 		this.value = value;
+		this.parts = null;
 	}
 
 	public void setWeight(float weight)
@@ -78,12 +124,12 @@ public class StringItem implements Serializable, Comparable<StringItem>
 	public int compareTo(StringItem o)
 	{
 		int sign = type - o.type;
-		return (sign == 0) ? value.compareTo(o.value) : sign;
+		return (sign == 0) ? getValue().compareTo(o.getValue()) : sign;
 	}
 
 	@Override
 	public String toString()
 	{
-		return type+":"+value+":"+weight;
+		return type+":"+getValue()+":"+weight;
 	}
 }
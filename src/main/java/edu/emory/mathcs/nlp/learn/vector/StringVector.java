@@ -37,6 +37,11 @@ public class StringVector implements Serializable, Iterable<StringItem>
 		vector = new ArrayList<>();
 	}
 	
+	public StringVector(int initialCapacity)
+	{
+		vector = new ArrayList<>(initialCapacity);
+	}
+	
 	public StringItem get(int index)
 	{
 		return vector.get(index);
@@ -47,6 +52,12 @@ public class StringVector implements Serializable, Iterable<StringItem>
 		add(new StringItem(type, value));
 	}
 	
+	/** Adds the conjunction of the parts (see {@link StringItem#StringItem(int, String[])}). */
+	public void add(int type, String[] parts)
+	{
+		add(new StringItem(type, parts));
+	}
+	
 	public void add(int type, String value, float weight)
 	{
 		add(new StringItem(type, value, weight));
@@ -22,4 +22,12 @@ import java.io.Serializable;
  */
 public interface Vector extends Serializable, Iterable<IndexValuePair>
 {
+	/** @return the number of entries in this vector. */
+	int size();
+	
+	/** @return the feature index of the i'th entry. */
+	int indexAt(int i);
+	
+	/** @return the feature value of the i'th entry. */
+	float valueAt(int i);
 }
@@ -17,10 +17,9 @@ package edu.emory.mathcs.nlp.learn.weight;
 
 import java.util.Arrays;
 
-import edu.emory.mathcs.nlp.common.collection.tuple.Pair;
 import edu.emory.mathcs.nlp.common.util.MathUtils;
 import edu.emory.mathcs.nlp.learn.util.Prediction;
-import edu.emory.mathcs.nlp.learn.vector.IndexValuePair;
+import edu.emory.mathcs.nlp.learn.vector.BinarySparseVector;
 import edu.emory.mathcs.nlp.learn.vector.Vector;
 
 /**
@@ -69,17 +68,47 @@ public class BinomialWeightVector extends WeightVector
 	
 	public double score(Vector x)
 	{
-		double score = 0;
+		double score;
 		
-		for (IndexValuePair p : x)
+		if (x instanceof BinarySparseVector)
 		{
-			if (p.getIndex() < feature_size)
-				score += weight_vector[p.getIndex()] * p.getValue();
+			BinarySparseVector b = (BinarySparseVector)x;
+			score = getScore(b.getValuedVector()) + getBinaryScore(b);
 		}
+		else
+			score = getScore(x);
 		
 		return isRegression() ? MathUtils.sigmoid(score) : score;
 	}
 	
+	private double getScore(Vector x)
+	{
+		double score = 0;
+		int i, size = x.size();
+		
+		for (i=0; i<size; i++)
+		{
+			if (x.indexAt(i) < feature_size)
+				score += weight_vector[x.indexAt(i)] * x.valueAt(i);
+		}
+		
+		return score;
+	}
+	
+	private double getBinaryScore(BinarySparseVector x)
+	{
+		double score = 0;
+		int i, size = x.binarySize();
+		
+		for (i=0; i<size; i++)
+		{
+			if (x.binaryIndexAt(i) < feature_size)
+				score += weight_vector[x.binaryIndexAt(i)];
+		}
+		
+		return score;
+	}
+	
 	@Override
 	public double[] scores(Vector x)
 	{
@@ -109,28 +138,5 @@ public class BinomialWeightVector extends WeightVector
 		
 		return new Prediction(label, score);
 	}
-
-	@Override
-	public Pair<Prediction, Prediction> predictTop2(Vector x) {
-		Pair<Prediction, Prediction> pair = new Pair<Prediction, Prediction>();
-		double score = score(x);
-		double bound = 0;
-		double upper = 0;
-		int    label = 1;
-		
-		if (isRegression())
-		{
-			bound = 0.5;
-			upper = 1;
-			pair.set(new Prediction(label, score), new Prediction(0, score = upper - score));
-		}
-		
-		if (score < bound)
-		{
-			label = 0;
-			pair.set(new Prediction(label, upper - score), new Prediction(1, score));
-		}
-		return pair;
-	}
 	
 }
@@ -15,15 +15,13 @@
  */
 package edu.emory.mathcs.nlp.learn.weight;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 
 import org.apache.commons.math3.util.FastMath;
 
-import edu.emory.mathcs.nlp.common.collection.tuple.Pair;
-import edu.emory.mathcs.nlp.common.util.DSUtils;
 import edu.emory.mathcs.nlp.learn.util.Prediction;
-import edu.emory.mathcs.nlp.learn.vector.IndexValuePair;
+import edu.emory.mathcs.nlp.learn.util.PredictionContext;
+import edu.emory.mathcs.nlp.learn.vector.BinarySparseVector;
 import edu.emory.mathcs.nlp.learn.vector.Vector;
 
 /**
@@ -92,18 +90,16 @@ public class MultinomialWeightVector extends WeightVector
 	public double[] scores(Vector x)
 	{
 		double[] scores = new double[label_size];
-		int i, index;
+		int i;
 		
-		for (IndexValuePair p : x)
+		if (x instanceof BinarySparseVector)
 		{
-			if (p.getIndex() < feature_size)
-			{
-				index = indexOf(p.getIndex());
-				
-				for (i=0; i<label_size; i++)
-					scores[i] += weight_vector[index+i] * p.getValue();	
-			}
+			BinarySparseVector b = (BinarySparseVector)x;
+			addScores(b.getValuedVector(), scores);
+			addBinaryScores(b, scores);
 		}
+		else
+			addScores(x, scores);
 		
 		if (isRegression())
 		{
@@ -122,44 +118,259 @@ public class MultinomialWeightVector extends WeightVector
 		return scores;
 	}
 	
+	/** Adds the weighted sums of all labels with respect to x to the scores. */
+	private void addScores(Vector x, double[] scores)
+	{
+		int i, j, index, size = x.size();
+		float value;
+		
+		for (j=0; j<size; j++)
+		{
+			if (x.indexAt(j) < feature_size)
+			{
+				index = indexOf(x.indexAt(j));
+				value = x.valueAt(j);
+				
+				for (i=0; i<label_size; i++)
+					scores[i] += weight_vector[index+i] * value;	
+			}
+		}
+	}
+	
+	/** Adds the weight rows of the binary features in x to the scores without multiplying values. */
+	private void addBinaryScores(BinarySparseVector x, double[] scores)
+	{
+		int i, j, index, size = x.binarySize();
+		
+		for (j=0; j<size; j++)
+		{
+			if (x.binaryIndexAt(j) < feature_size)
+			{
+				index = indexOf(x.binaryIndexAt(j));
+				
+				for (i=0; i<label_size; i++)
+					scores[i] += weight_vector[index+i];	
+			}
+		}
+	}
+	
+	/**
+	 * Accumulates the scores of all labels with respect to x into the buffer, which is reset first.
+	 * The weight rows are added with unrolled loops over float arrays so the JIT can vectorize them.
+	 * @param scores the buffer whose size must be greater or equal to {@link #label_size}.
+	 */
 	@Override
-	public Prediction predictBest(Vector x)
+	public void scores(Vector x, float[] scores)
 	{
-		double[] scores = scores(x);
-		int      label  = DSUtils.maxIndex(scores);
-		return new Prediction(label, scores[label]);
+		Arrays.fill(scores, 0, label_size, 0f);
+		
+		if (x instanceof BinarySparseVector)
+		{
+			BinarySparseVector b = (BinarySparseVector)x;
+			addScores(b.getValuedVector(), scores);
+			addBinaryScores(b, scores);
+		}
+		else
+			addScores(x, scores);
+		
+		if (isRegression())
+			softmax(scores, label_size);
+	}
+	
+	/**
+	 * Turns the first size scores into probabilities.
+	 * The max score is subtracted before exponentiating so large scores do not overflow the floats.
+	 */
+	static private void softmax(float[] scores, int size)
+	{
+		float max = Float.NEGATIVE_INFINITY;
+		double sum = 0;
+		int i;
+		
+		for (i=0; i<size; i++)
+			max = Math.max(max, scores[i]);
+		
+		for (i=0; i<size; i++)
+		{
+			scores[i] = (float)FastMath.exp(scores[i] - max);
+			sum += scores[i];
+		}
+		
+		for (i=0; i<size; i++)
+			scores[i] /= sum;
 	}
 	
+	private void addScores(Vector x, float[] scores)
+	{
+		int j, xi, size = x.size();
+		
+		for (j=0; j<size; j++)
+		{
+			xi = x.indexAt(j);
+			if (xi < feature_size) addRow(weight_vector, indexOf(xi), x.valueAt(j), scores, label_size);
+		}
+	}
 	
+	private void addBinaryScores(BinarySparseVector x, float[] scores)
+	{
+		int j, xi, size = x.binarySize();
+		
+		for (j=0; j<size; j++)
+		{
+			xi = x.binaryIndexAt(j);
+			if (xi < feature_size) addRow(weight_vector, indexOf(xi), scores, label_size);
+		}
+	}
+	
+	/**
+	 * Same as {@link #scores(Vector, float[])} but accumulates the weights of the specific labels only,
+	 * which skips the other labels of every weight row; scores of the other labels are left unchanged.
+	 */
 	@Override
-	public Pair<Prediction,Prediction> predictTop2(Vector x)
+	public void scores(Vector x, float[] scores, int[] labels)
 	{
-		double[] scores = scores(x);
-		Prediction fst, snd;
+		if (labels.length == label_size)
+		{
+			scores(x, scores);
+			return;
+		}
 		
-		if (scores[0] < scores[1])
+		for (int label : labels)
+			scores[label] = 0;
+		
+		if (x instanceof BinarySparseVector)
 		{
-			fst = new Prediction(1, scores[1]);
-			snd = new Prediction(0, scores[0]);
+			BinarySparseVector b = (BinarySparseVector)x;
+			addScores(b.getValuedVector(), scores, labels);
+			addBinaryScores(b, scores, labels);
 		}
 		else
+			addScores(x, scores, labels);
+		
+		if (isRegression())
+			softmax(scores, labels);
+	}
+	
+	/** Same as {@link #softmax(float[], int)} but for the specific labels only. */
+	static private void softmax(float[] scores, int[] labels)
+	{
+		float max = Float.NEGATIVE_INFINITY;
+		double sum = 0;
+		
+		for (int label : labels)
+			max = Math.max(max, scores[label]);
+		
+		for (int label : labels)
+		{
+			scores[label] = (float)FastMath.exp(scores[label] - max);
+			sum += scores[label];
+		}
+		
+		for (int label : labels)
+			scores[label] /= sum;
+	}
+	
+	private void addScores(Vector x, float[] scores, int[] labels)
+	{
+		int j, k, xi, index, size = x.size();
+		float value;
+		
+		for (j=0; j<size; j++)
 		{
-			fst = new Prediction(0, scores[0]);			
-			snd = new Prediction(1, scores[1]);
+			xi = x.indexAt(j);
+			
+			if (xi < feature_size)
+			{
+				index = indexOf(xi);
+				value = x.valueAt(j);
+				
+				for (k=0; k<labels.length; k++)
+					scores[labels[k]] += weight_vector[index+labels[k]] * value;
+			}
 		}
+	}
+	
+	private void addBinaryScores(BinarySparseVector x, float[] scores, int[] labels)
+	{
+		int j, k, xi, index, size = x.binarySize();
 		
-		for (int i=2; i<label_size; i++)
+		for (j=0; j<size; j++)
 		{
-			if (fst.getScore() < scores[i])
+			xi = x.binaryIndexAt(j);
+			
+			if (xi < feature_size)
 			{
-				snd.copy(fst);
-				fst.set(i, scores[i]);
+				index = indexOf(xi);
+				
+				for (k=0; k<labels.length; k++)
+					scores[labels[k]] += weight_vector[index+labels[k]];
 			}
-			else if (snd.getScore() < scores[i])
-				snd.set(i, scores[i]);
 		}
+	}
+	
+	/** scores[i] += weights[offset+i] * value for all i in [0, size). */
+	static void addRow(float[] weights, int offset, float value, float[] scores, int size)
+	{
+		int i, last = size & ~3;
+		
+		for (i=0; i<last; i+=4)
+		{
+			scores[i  ] += weights[offset+i  ] * value;
+			scores[i+1] += weights[offset+i+1] * value;
+			scores[i+2] += weights[offset+i+2] * value;
+			scores[i+3] += weights[offset+i+3] * value;
+		}
+		
+		for (; i<size; i++)
+			scores[i] += weights[offset+i] * value;
+	}
+	
+	/** scores[i] += weights[offset+i] for all i in [0, size). */
+	static void addRow(float[] weights, int offset, float[] scores, int size)
+	{
+		int i, last = size & ~3;
+		
+		for (i=0; i<last; i+=4)
+		{
+			scores[i  ] += weights[offset+i  ];
+			scores[i+1] += weights[offset+i+1];
+			scores[i+2] += weights[offset+i+2];
+			scores[i+3] += weights[offset+i+3];
+		}
+		
+		for (; i<size; i++)
+			scores[i] += weights[offset+i];
+	}
+	
+	@Override
+	public Prediction predictBest(Vector x)
+	{
+		float[] scores = new float[label_size];
+		Prediction p = new Prediction(0, 0);
+		
+		scores(x, scores);
+		predictBest(scores, p);
+		return p;
+	}
+	
+	@Override
+	public Prediction predictBest(Vector x, PredictionContext context)
+	{
+		float[] scores = context.getScores(label_size);
+		scores(x, scores);
+		predictBest(scores, context.getFirst());
+		return context.getFirst();
+	}
+	
+	/** Sets the label with the highest score to the prediction. */
+	private void predictBest(float[] scores, Prediction p)
+	{
+		int label = 0;
+		
+		for (int i=1; i<label_size; i++)
+			if (scores[label] < scores[i]) label = i;
 		
-		return new Pair<Prediction,Prediction>(fst, snd);
+		p.set(label, scores[label]);
 	}
 	
 //	@Override
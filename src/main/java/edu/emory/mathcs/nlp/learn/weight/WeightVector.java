@@ -15,13 +15,15 @@
  */
 package edu.emory.mathcs.nlp.learn.weight;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
-import edu.emory.mathcs.nlp.common.collection.tuple.Pair;
+import edu.emory.mathcs.nlp.learn.util.BinaryWriter;
 import edu.emory.mathcs.nlp.learn.util.Prediction;
+import edu.emory.mathcs.nlp.learn.util.PredictionContext;
 import edu.emory.mathcs.nlp.learn.util.StringPrediction;
-import edu.emory.mathcs.nlp.learn.vector.IndexValuePair;
 import edu.emory.mathcs.nlp.learn.vector.Vector;
 
 /**
@@ -76,6 +78,25 @@ public abstract class WeightVector implements Serializable
 		weight_vector = array;
 	}
 	
+	/** Writes the sizes and the weights as a raw little-endian float block. */
+	public void writeBinary(BinaryWriter out) throws IOException
+	{
+		out.writeInt(label_size);
+		out.writeInt(feature_size);
+		out.writeInt(weight_vector.length);
+		out.writeFloats(weight_vector);
+	}
+	
+	/** Reads the weights written by {@link #writeBinary(BinaryWriter)} by bulk-copying the float block. */
+	public void readBinary(ByteBuffer in)
+	{
+		label_size    = in.getInt();
+		feature_size  = in.getInt();
+		weight_vector = new float[in.getInt()];
+		in.asFloatBuffer().get(weight_vector);
+		in.position(in.position() + weight_vector.length * Float.BYTES);
+	}
+	
 	public float[] getWeights(int label)
 	{
 		float[] w = new float[feature_size];
@@ -111,8 +132,8 @@ public abstract class WeightVector implements Serializable
 	@Deprecated
 	public void update(Vector x, int label, double gradient)
 	{
-		for (IndexValuePair p : x)
-			add(label, p.getIndex(), gradient * p.getValue());
+		for (int i=0; i<x.size(); i++)
+			add(label, x.indexAt(i), gradient * x.valueAt(i));
 	}
 	
 	/** Fills this weight vector with the specific value. */
@@ -163,8 +184,46 @@ public abstract class WeightVector implements Serializable
 	/** @return the scores of all labels with respect to x. */
 	public abstract double[] scores(Vector x);
 	
+	/** Same as {@link #scores(Vector)} but writes the scores to the buffer, whose size must be greater or equal to the number of labels. */
+	public void scores(Vector x, float[] scores)
+	{
+		double[] d = scores(x);
+		
+		for (int i=0; i<d.length; i++)
+			scores[i] = (float)d[i];
+	}
+	
+	/**
+	 * Same as {@link #scores(Vector, float[])} but only the scores of the specific labels are guaranteed to be set;
+	 * for regression, they are normalized among the specific labels.
+	 * @param labels the label indices to score.
+	 */
+	public void scores(Vector x, float[] scores, int[] labels)
+	{
+		scores(x, scores);
+		if (isRegression()) normalize(scores, labels);
+	}
+	
+	/** Divides the scores of the specific labels by their sum. */
+	protected void normalize(float[] scores, int[] labels)
+	{
+		float sum = 0;
+		
+		for (int label : labels)
+			sum += scores[label];
+		
+		for (int label : labels)
+			scores[label] /= sum;
+	}
+	
 	/** @return the best predicated label with respect to x. */
 	public abstract Prediction predictBest(Vector x);
-
-	public abstract Pair<Prediction, Prediction> predictTop2(Vector x);
+	
+	/** Same as {@link #predictBest(Vector)} but the result is written to {@link PredictionContext#getFirst()}. */
+	public Prediction predictBest(Vector x, PredictionContext context)
+	{
+		Prediction p = context.getFirst();
+		p.copy(predictBest(x));
+		return p;
+	}
 }
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.benchmark;
+
+import java.util.Random;
+
+import edu.emory.mathcs.nlp.learn.vector.BinarySparseVector;
+import edu.emory.mathcs.nlp.learn.weight.MultinomialWeightVector;
+
+/**
+ * Compares {@link MultinomialWeightVector#scores(edu.emory.mathcs.nlp.learn.vector.Vector)}
+ * against the buffered float kernel on DEP-sized (80 labels) and POS-sized (45 labels) label sets.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class ScoreBenchmark
+{
+	static final int FEATURE_SIZE  = 500000;
+	static final int VECTOR_SIZE   = 60;
+	static final int VECTOR_COUNT  = 1000;
+	static final int ITERATIONS    = 200;
+	
+//	@Test
+	public void benchmark()
+	{
+		benchmark(80);
+		benchmark(45);
+	}
+	
+	public void benchmark(int labelSize)
+	{
+		Random rand = new Random(1);
+		MultinomialWeightVector w = new MultinomialWeightVector(labelSize, FEATURE_SIZE);
+		BinarySparseVector[] xs = new BinarySparseVector[VECTOR_COUNT];
+		float[] weights = w.toArray(), buffer = new float[labelSize];
+		long st, et;
+		double sum = 0;
+		int i, j;
+		
+		for (i=0; i<weights.length; i++)
+			weights[i] = (float)rand.nextGaussian();
+		
+		for (i=0; i<VECTOR_COUNT; i++)
+		{
+			xs[i] = new BinarySparseVector(VECTOR_SIZE);
+			for (j=0; j<VECTOR_SIZE; j++) xs[i].add(rand.nextInt(FEATURE_SIZE));
+			xs[i].sort();
+		}
+		
+		// warm up both paths before timing
+		for (i=0; i<ITERATIONS; i++)
+		{
+			for (BinarySparseVector x : xs)
+			{
+				sum += w.scores(x)[0];
+				w.scores(x, buffer);
+				sum += buffer[0];
+			}
+		}
+		
+		st = System.nanoTime();
+		for (i=0; i<ITERATIONS; i++)
+			for (BinarySparseVector x : xs)
+				sum += w.scores(x)[0];
+		et = System.nanoTime();
+		System.out.printf("labels = %d, double[] scores: %8.2f ns/call\n", labelSize, (double)(et-st) / (ITERATIONS * VECTOR_COUNT));
+		
+		st = System.nanoTime();
+		for (i=0; i<ITERATIONS; i++)
+		{
+			for (BinarySparseVector x : xs)
+			{
+				w.scores(x, buffer);
+				sum += buffer[0];
+			}
+		}
+		et = System.nanoTime();
+		System.out.printf("labels = %d, float[]  kernel: %8.2f ns/call (%f)\n", labelSize, (double)(et-st) / (ITERATIONS * VECTOR_COUNT), sum);
+	}
+	
+	static public void main(String[] args)
+	{
+		new ScoreBenchmark().benchmark();
+	}
+}
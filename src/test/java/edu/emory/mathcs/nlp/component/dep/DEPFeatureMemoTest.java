@@ -0,0 +1,108 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.dep;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.component.dep.feature.DEPFeatureTemplate0;
+import edu.emory.mathcs.nlp.component.dep.feature.DEPFeatureTemplate1;
+import edu.emory.mathcs.nlp.component.dep.feature.DEPFeatureTemplate2;
+import edu.emory.mathcs.nlp.component.util.feature.Direction;
+import edu.emory.mathcs.nlp.component.util.feature.FeatureItem;
+import edu.emory.mathcs.nlp.component.util.feature.Field;
+import edu.emory.mathcs.nlp.component.util.feature.Relation;
+import edu.emory.mathcs.nlp.component.util.feature.Source;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DEPFeatureMemoTest
+{
+	/** Features extracted from a state whose memo has seen arcs added and undone must be the same as the ones from a new state without memo. */
+	@Test
+	public void test() throws Exception
+	{
+		DEPFeatureTemplate[] templates = {new DEPFeatureTemplate0(), new DEPFeatureTemplate1(), new DEPFeatureTemplate2(), new DEPFeatureTemplateAll()};
+		Random rand = new Random(3);
+		
+		for (DEPFeatureTemplate template : templates)
+		{
+			for (DEPNode[] nodes : DEPTestUtils.read())
+			{
+				for (int trial=0; trial<50; trial++)
+				{
+					DEPState<DEPNode> state = new DEPState<>(nodes);
+					List<String> history = new ArrayList<>();
+					String label;
+					
+					while (!state.isTerminate())
+					{
+						assertEquals(getFeatures(template, nodes, history), template.extractFeatures(state).toString());
+						
+						if (!history.isEmpty() && rand.nextInt(4) == 0)
+						{
+							state.undo();
+							history.remove(history.size()-1);
+						}
+						else
+						{
+							label = state.resolve(DEPTestUtils.getRandomTransition(rand));
+							state.next(label);
+							history.add(label);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/** @return the features extracted from a new state after the transitions. */
+	private String getFeatures(DEPFeatureTemplate template, DEPNode[] nodes, List<String> history)
+	{
+		DEPState<DEPNode> state = new DEPState<>(nodes);
+		for (String label : history) state.next(label);
+		return template.extractFeatures(state).toString();
+	}
+	
+	/** Extracts memoized fields through every relation from every source. */
+	@SuppressWarnings("serial")
+	static class DEPFeatureTemplateAll extends DEPFeatureTemplate
+	{
+		@Override
+		protected void init()
+		{
+			for (Source source : Source.values())
+			{
+				for (int window=0; window<2; window++)
+				{
+					add(new FeatureItem<>(source, window, Field.valency, Direction.all));
+					
+					for (Relation relation : Relation.values())
+					{
+						add(new FeatureItem<>(source, relation, window, Field.dependency_label));
+						add(new FeatureItem<>(source, relation, window, Field.valency, Direction.all));
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.dep;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.component.dep.feature.DEPFeatureTemplate1;
+import edu.emory.mathcs.nlp.component.util.NLPFlag;
+import edu.emory.mathcs.nlp.learn.model.StringModel;
+import edu.emory.mathcs.nlp.learn.optimization.sgd.AdaGrad;
+import edu.emory.mathcs.nlp.learn.util.PredictionContext;
+import edu.emory.mathcs.nlp.learn.weight.MultinomialWeightVector;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DEPParserTest
+{
+	@Test
+	public void testBeam() throws Exception
+	{
+		List<DEPNode[]> trees = DEPTestUtils.read();
+		DEPParser<DEPNode> parser = train(trees);
+		PredictionContext context = new PredictionContext();
+		DEPState<DEPNode> state;
+		String greedy;
+		
+		for (DEPNode[] nodes : trees)
+		{
+			// beam of 1 is the same as greedy decoding
+			parser.setBeamSize(1);
+			parser.decode(nodes, context);
+			greedy = getArcs(nodes);
+			state = parser.decodeBeam(parser.createState(nodes), context);
+			state.materialize();
+			assertEquals(greedy, getArcs(nodes));
+			
+			parser.setBeamSize(4);
+			state = parser.decode(nodes, context);
+			assertTrue(state.isTerminate());
+			assertTree(nodes);
+		}
+	}
+	
+	/** @return a parser trained on the trees, whose arcs are kept in the nodes. */
+	private DEPParser<DEPNode> train(List<DEPNode[]> trees)
+	{
+		StringModel model = new StringModel(new MultinomialWeightVector());
+		DEPParser<DEPNode> parser = new DEPParser<>(model);
+		parser.setFeatureTemplate(new DEPFeatureTemplate1());
+		parser.setFlag(NLPFlag.TRAIN);
+		model.setBias(1);
+		
+		for (DEPNode[] nodes : trees)
+			parser.process(nodes);
+		
+		model.vectorize(1, 1, false);
+		new AdaGrad(model.getWeightVector(), false, 0.02).train(model.getInstanceList(), 5);
+		parser.setFlag(NLPFlag.DECODE);
+		return parser;
+	}
+	
+	/** Asserts that every node has at most one head in the sentence, which comes with a label, and that no node is its own ancestor. */
+	private void assertTree(DEPNode[] nodes)
+	{
+		DEPNode node;
+		int steps;
+		
+		for (int i=1; i<nodes.length; i++)
+		{
+			assertEquals(nodes[i].hasHead(), nodes[i].getLabel() != null);
+			
+			for (node=nodes[i], steps=0; node.hasHead(); node=node.getHead())
+			{
+				assertTrue(node.getHead() == nodes[node.getHead().getID()]);
+				assertTrue(++steps < nodes.length);
+			}
+		}
+	}
+	
+	/** @return the heads and the labels of the nodes. */
+	private String getArcs(DEPNode[] nodes)
+	{
+		StringBuilder build = new StringBuilder();
+		
+		for (int i=1; i<nodes.length; i++)
+			build.append(nodes[i].hasHead() ? nodes[i].getHead().getID() : -1).append(':').append(nodes[i].getLabel()).append(' ');
+		
+		return build.toString();
+	}
+}
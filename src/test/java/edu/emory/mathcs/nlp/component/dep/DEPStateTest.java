@@ -0,0 +1,125 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.dep;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DEPStateTest
+{
+	@Test
+	public void testUndo() throws Exception
+	{
+		Random rand = new Random(1);
+		
+		for (DEPNode[] nodes : DEPTestUtils.read())
+		{
+			for (int trial=0; trial<20; trial++)
+			{
+				DEPState<DEPNode> state = new DEPState<>(nodes);
+				List<String> arcs = new ArrayList<>();
+				
+				while (!state.isTerminate())
+				{
+					arcs.add(getArcs(state, nodes));
+					state.next(DEPTestUtils.getRandomTransition(rand));
+				}
+				
+				for (int i=arcs.size()-1; i>=0; i--)
+				{
+					state.undo();
+					assertEquals(arcs.get(i), getArcs(state, nodes));
+				}
+				
+				assertEquals(0, state.getHistorySize());
+			}
+		}
+	}
+	
+	@Test
+	public void testFork() throws Exception
+	{
+		Random rand = new Random(2);
+		
+		for (DEPNode[] nodes : DEPTestUtils.read())
+		{
+			DEPState<DEPNode> state = new DEPState<>(nodes);
+			for (int i=0; i<nodes.length/2; i++) state.next(DEPTestUtils.getRandomTransition(rand));
+			
+			String arcs = getArcs(state, nodes);
+			int history = state.getHistorySize();
+			DEPState<DEPNode> fork = new DEPState<>(state);
+			assertEquals(arcs, getArcs(fork, nodes));
+			
+			while (!fork.isTerminate()) fork.next(DEPState.RIGHT_ARC+"c");
+			assertEquals(arcs, getArcs(state, nodes));
+			
+			// the fork keeps the history of the state
+			while (fork.getHistorySize() > history) fork.undo();
+			assertEquals(arcs, getArcs(fork, nodes));
+			assertEquals(arcs, getArcs(state, nodes));
+			assertEquals(history, state.getHistorySize());
+		}
+	}
+	
+	@Test
+	public void testOracle() throws Exception
+	{
+		for (DEPNode[] nodes : DEPTestUtils.read())
+		{
+			String gold = getArcs(nodes);
+			DEPState<DEPNode> state = new DEPState<>(nodes);
+			state.saveOracle();
+			
+			while (!state.isTerminate())
+				state.next(state.getOraclePrediction());
+			
+			for (int i=1; i<nodes.length; i++) nodes[i].setHead(null, null);
+			state.materialize();
+			assertEquals(gold, getArcs(nodes));
+		}
+	}
+	
+	/** @return the heads and the labels of the nodes in the state. */
+	private String getArcs(DEPState<DEPNode> state, DEPNode[] nodes)
+	{
+		StringBuilder build = new StringBuilder();
+		
+		for (int i=1; i<nodes.length; i++)
+			build.append(state.hasHead(nodes[i]) ? state.getHead(nodes[i]).getID() : -1).append(':').append(state.getLabel(nodes[i])).append(' ');
+		
+		return build.toString();
+	}
+	
+	/** @return the heads and the labels of the nodes. */
+	private String getArcs(DEPNode[] nodes)
+	{
+		StringBuilder build = new StringBuilder();
+		
+		for (int i=1; i<nodes.length; i++)
+			build.append(nodes[i].hasHead() ? nodes[i].getHead().getID() : -1).append(':').append(nodes[i].getLabel()).append(' ');
+		
+		return build.toString();
+	}
+}
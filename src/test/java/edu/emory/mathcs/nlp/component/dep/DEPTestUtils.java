@@ -0,0 +1,55 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.dep;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.util.reader.TSVReader;
+
+/**
+ * Fixtures shared by the tests of dependency parsing.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DEPTestUtils
+{
+	/** Transitions with two labels per arc direction for random walks over parsing states. */
+	static private final String[] TRANSITIONS = {DEPState.SHIFT, DEPState.REDUCE, DEPState.LEFT_ARC+"a", DEPState.RIGHT_ARC+"b", DEPState.LEFT_ARC+"c", DEPState.RIGHT_ARC+"d"};
+	
+	/** @return one of {@link #TRANSITIONS} at random, which may not be legal in the state it gets applied to. */
+	static String getRandomTransition(Random rand)
+	{
+		return TRANSITIONS[rand.nextInt(TRANSITIONS.length)];
+	}
+	
+	/** @return the gold trees of the sample file. */
+	static List<DEPNode[]> read() throws IOException
+	{
+		TSVReader<DEPNode> reader = new TSVReader<>(new DEPIndex(1, 2, 3, 4, 5, 6));
+		reader.open(IOUtils.createFileInputStream("src/main/resources/dat/wsj_0001.dep"));
+		List<DEPNode[]> list = new ArrayList<>();
+		DEPNode[] nodes;
+		
+		while ((nodes = reader.next()) != null)
+			list.add(nodes);
+		
+		reader.close();
+		return list;
+	}
+}
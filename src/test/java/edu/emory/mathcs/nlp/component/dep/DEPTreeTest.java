@@ -0,0 +1,71 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.dep;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DEPTreeTest
+{
+	@Test
+	public void test()
+	{
+		// 0 <- 3, 3 <- {1, 2, 5}, 5 <- 4
+		DEPTree tree = new DEPTree(6);
+		
+		tree.setHead(2, 3);
+		tree.setHead(1, 3);
+		tree.setHead(4, 5);
+		tree.setHead(5, 3);
+		tree.setHead(3, 0);
+		
+		assertEquals(1, tree.getFirstDependent(3));
+		assertEquals(5, tree.getLastDependent(3));
+		assertEquals(2, tree.getNextSibling(1));
+		assertEquals(2, tree.getPrevSibling(5));
+		assertEquals(3, tree.getDepth(4));
+		
+		assertEquals( 1, tree.getLeftMostDependent(3, 0));
+		assertEquals( 2, tree.getLeftMostDependent(3, 1));
+		assertEquals(-1, tree.getLeftMostDependent(3, 2));
+		assertEquals( 2, tree.getLeftNearestDependent(3, 0));
+		assertEquals( 5, tree.getRightMostDependent(3, 0));
+		assertEquals(-1, tree.getRightMostDependent(3, 1));
+		assertEquals( 5, tree.getRightNearestDependent(3, 0));
+		assertEquals( 1, tree.getLeftNearestSibling(5, 1));
+		assertEquals(-1, tree.getRightNearestSibling(5, 0));
+		
+		assertTrue (tree.isDescendantOf(4, 0));
+		assertFalse(tree.isDescendantOf(3, 4));
+		assertEquals(3, tree.getLowestCommonAncestor(1, 4));
+		assertEquals(5, tree.getLowestCommonAncestor(5, 4));
+		
+		// re-heading moves the whole subtree
+		tree.setHead(5, 2);
+		assertEquals(2, tree.getLastDependent(3));
+		assertEquals(4, tree.getDepth(4));
+		
+		tree.setHead(3, -1);
+		assertEquals( 3, tree.getDepth(4));
+		assertEquals(-1, tree.getLowestCommonAncestor(0, 4));
+	}
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.component.pos.POSNode;
+import edu.emory.mathcs.nlp.component.pos.POSState;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class BatchDecoderTest
+{
+	@Test
+	public void testProcess()
+	{
+		BatchDecoder<POSNode,POSState<POSNode>> decoder = new BatchDecoder<>(null, 4, 8);
+		List<POSNode[]> input = IntStream.range(0, 100).mapToObj(i -> new POSNode[i % 7]).collect(Collectors.toList());
+		List<Integer> output = new ArrayList<>();
+		
+		decoder.process(input.iterator(), (nodes, context) ->
+		{
+			try {Thread.sleep(nodes.length);}
+			catch (InterruptedException e) {e.printStackTrace();}
+			return nodes.length;
+		},
+		(nodes, length) -> output.add(length));
+		
+		assertEquals(input.size(), output.size());
+		
+		for (int i=0; i<input.size(); i++)
+			assertEquals(i % 7, (int)output.get(i));
+	}
+}
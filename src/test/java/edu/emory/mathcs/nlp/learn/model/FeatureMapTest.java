@@ -15,6 +15,12 @@
  */
 package edu.emory.mathcs.nlp.learn.model;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.learn.vector.StringItem;
 
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
@@ -48,4 +54,29 @@ public class FeatureMapTest
 		map.expand(1);
 		System.out.println(map.toString());
 	}
+	
+	@Test
+	public void testHashed()
+	{
+		FeatureMap map = new FeatureMap();
+		map.setHashBits(4);
+		map.add(0, "A");
+		
+		// the cutoff is ignored, and index 0 is reserved for the bias
+		assertEquals(17, map.expand(10));
+		assertEquals(17, map.size());
+		int index;
+		
+		for (int type=0; type<3; type++)
+		{
+			for (int i=0; i<100; i++)
+			{
+				index = map.indexOf(type, Integer.toString(i));
+				assertTrue(1 <= index && index <= 16);
+			}
+		}
+		
+		assertEquals(map.indexOf(0, "A"), map.indexOf(new StringItem(0, "A")));
+		assertEquals(map.indexOf(2, "A_B"), map.indexOf(new StringItem(2, new String[]{"A", "B"})));
+	}
 }
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learn.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.learn.util.BinaryWriter;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class FeatureTableTest
+{
+	@Test
+	public void test() throws Exception
+	{
+		String[] features = {"A", "AB", "b", "\uAC00", "\u00E9", "\uD83D\uDE00", "z\uFFFD", ""};
+		FeatureMap map = new FeatureMap();
+		
+		for (String f : features)
+		{
+			map.add(0, f);
+			map.add(2, f+"|2");
+		}
+		
+		map.expand(0);
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BinaryWriter out = new BinaryWriter(Channels.newChannel(bytes));
+		map.writeBinary(out);
+		out.writeInt(7);
+		out.close();
+		
+		ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+		FeatureMap table = new FeatureMap();
+		table.readBinary(in);
+		assertEquals(7, in.getInt());
+		assertEquals(map.size(), table.size());
+		
+		for (String f : features)
+		{
+			assertEquals(map.indexOf(0, f), table.indexOf(0, f));
+			assertEquals(map.indexOf(2, f+"|2"), table.indexOf(2, f+"|2"));
+			assertEquals(-1, table.indexOf(1, f));
+			assertEquals(-1, table.indexOf(0, f+"?"));
+		}
+		
+		table.add(0, "new");
+		table.expand(0);
+		assertEquals(map.indexOf(0, "\uAC00"), table.indexOf(0, "\uAC00"));
+		assertEquals(map.size(), table.indexOf(0, "new"));
+	}
+}
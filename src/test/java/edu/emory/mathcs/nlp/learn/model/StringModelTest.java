@@ -0,0 +1,51 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learn.model;
+
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.learn.util.StringInstance;
+import edu.emory.mathcs.nlp.learn.vector.StringVector;
+import edu.emory.mathcs.nlp.learn.weight.MultinomialWeightVector;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class StringModelTest
+{
+	@Test
+	public void testHashBitsOverflow()
+	{
+		StringModel model = new StringModel(new MultinomialWeightVector());
+		model.setFeatureHashBits(25);
+		
+		for (int i=0; i<80; i++)
+		{
+			StringVector x = new StringVector();
+			x.add(0, "A");
+			model.addInstance(new StringInstance(Integer.toString(i), x));
+		}
+		
+		try
+		{
+			model.vectorize(0, 0, true);
+			fail();
+		}
+		catch (IllegalStateException e) {}
+	}
+}
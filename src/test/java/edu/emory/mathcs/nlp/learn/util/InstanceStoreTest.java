@@ -0,0 +1,130 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learn.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.learn.vector.BinarySparseVector;
+import edu.emory.mathcs.nlp.learn.vector.SparseVector;
+import edu.emory.mathcs.nlp.learn.vector.Vector;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class InstanceStoreTest
+{
+	@Test
+	public void testAdd()
+	{
+		// 2^3 values per segment so that the columns cross segment boundaries
+		InstanceStore store = new InstanceStore(null, 3);
+		List<Instance> list = getInstances(20);
+		
+		for (Instance instance : list)
+			store.add(instance);
+		
+		assertEquals(list.size(), store.size());
+		
+		for (int i=0; i<list.size(); i++)
+			assertEquals(toString(list.get(i)), toString(store.get(i)));
+		
+		BinarySparseVector x = (BinarySparseVector)store.get(1).getVector();
+		assertEquals(1, x.getValuedVector().size());
+		assertEquals(2, x.binarySize());
+		store.close();
+	}
+	
+	@Test
+	public void testShuffle()
+	{
+		InstanceStore store = new InstanceStore(null, 3);
+		List<Instance> list = getInstances(20);
+		
+		for (Instance instance : list)
+			store.add(instance);
+		
+		store.shuffle(new Random(5));
+		Collections.shuffle(list, new Random(5));
+		
+		for (int i=0; i<list.size(); i++)
+			assertEquals(toString(list.get(i)), toString(store.get(i)));
+		
+		store.close();
+	}
+	
+	@Test
+	public void testClose()
+	{
+		InstanceStore store = new InstanceStore(null, 3);
+		File file = store.getFile();
+		
+		store.add(getInstances(1).get(0));
+		assertTrue(file.exists());
+		store.close();
+		assertFalse(file.exists());
+	}
+	
+	/** @return instances mixing binary features, valued features, and sparse vectors without binary features. */
+	private List<Instance> getInstances(int size)
+	{
+		List<Instance> list = new ArrayList<>();
+		Vector x;
+		
+		for (int i=0; i<size; i++)
+		{
+			if (i % 3 == 2)
+			{
+				SparseVector v = new SparseVector();
+				v.add(i, 0.5f);
+				v.add(i+1);
+				x = v;
+			}
+			else
+			{
+				BinarySparseVector b = new BinarySparseVector();
+				b.add(0, 0.25f * i);
+				for (int j=0; j<=i; j++) b.add(i+j);
+				x = b;
+			}
+			
+			list.add(new Instance(i % 4, x));
+		}
+		
+		return list;
+	}
+	
+	/** @return the label followed by the features sorted by the feature indices. */
+	private String toString(Instance instance)
+	{
+		List<String> features = new ArrayList<>();
+		
+		for (int i=0; i<instance.getVector().size(); i++)
+			features.add(instance.getVector().indexAt(i)+":"+instance.getVector().valueAt(i));
+		
+		Collections.sort(features);
+		return instance.getLabel()+" "+features;
+	}
+}
@@ -37,8 +37,39 @@ public class VectorTest extends TestCase
 		assertEquals("2:1.0 1:0.2 4:0.3 3:1.0", x.toString());
 		x.sort();
 		assertEquals("1:0.2 2:1.0 3:1.0 4:0.3", x.toString());
+
+		assertEquals(4, x.size());
+		assertEquals(1, x.indexAt(0));
+		assertEquals(0.2f, x.valueAt(0));
+		assertEquals(4, x.indexAt(3));
+		assertEquals(0.3f, x.valueAt(3));
+
+		for (int i=0; i<20; i++) x.add(i+5);
+		x.trimToSize();
+		assertEquals(24, x.size());
+		assertEquals(24, x.indexAt(23));
 	}
 	
+	@Test
+	public void testBinarySparseVector()
+	{
+		BinarySparseVector x = new BinarySparseVector();
+
+		x.add(2);
+		x.add(1, 0.2f);
+		x.add(4, 1f);
+		x.add(3);
+		x.sort();
+
+		assertEquals("1:0.2 2 3 4", x.toString());
+		assertEquals(4, x.size());
+		assertEquals(3, x.binarySize());
+		assertEquals(1, x.indexAt(0));
+		assertEquals(0.2f, x.valueAt(0));
+		assertEquals(4, x.indexAt(3));
+		assertEquals(1f, x.valueAt(3));
+	}
+
 	@Test
 	public void testDenseVector()
 	{
@@ -66,5 +97,9 @@ public class VectorTest extends TestCase
 		vector.add((short)3, "C");
 		
 		assertEquals("2:B:1.0 4:A:0.2 1:A:0.3 3:C:1.0", vector.toString());
+		
+		StringItem item = new StringItem(5, new String[]{"A", "", "BC"});
+		assertEquals("A__BC".hashCode(), item.getValueHash());
+		assertEquals("A__BC", item.getValue());
 	}
 }
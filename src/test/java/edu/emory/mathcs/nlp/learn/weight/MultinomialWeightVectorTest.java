@@ -0,0 +1,92 @@
+/**
+ * Copyright 2015, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learn.weight;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.learn.util.Prediction;
+import edu.emory.mathcs.nlp.learn.vector.BinarySparseVector;
+import edu.emory.mathcs.nlp.learn.vector.SparseVector;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class MultinomialWeightVectorTest extends TestCase
+{
+	@Test
+	public void testRegressionScores()
+	{
+		// raw scores far beyond the float range of exp
+		MultinomialWeightVector w = createRegression(100, 300, 0);
+		SparseVector x = new SparseVector();
+		x.add(0);
+		
+		float[] scores = new float[3];
+		w.scores(x, scores);
+		assertEquals(0f, scores[0], 1e-6f);
+		assertEquals(1f, scores[1], 1e-6f);
+		assertEquals(0f, scores[2], 1e-6f);
+		
+		Prediction p = w.predictBest(x);
+		assertEquals(1, p.getLabel());
+	}
+	
+	@Test
+	public void testSubsetScores()
+	{
+		MultinomialWeightVector w = new MultinomialWeightVector(4, 3);
+		w.fromArray(new float[]{1, 2, 3, 4, -1, 0.5f, 2, 0, 3, 1, -2, 5});
+		BinarySparseVector x = new BinarySparseVector();
+		x.add(0); x.add(1, 0.5f); x.add(2);
+		x.sort();
+		
+		float[] all = new float[4], subset = new float[4];
+		int[] labels = {1, 3};
+		w.scores(x, all);
+		w.scores(x, subset, labels);
+		
+		for (int label : labels)
+			assertEquals(all[label], subset[label], 1e-6f);
+		
+		// regression normalizes among the labels without overflowing
+		MultinomialWeightVector r = createRegression(300, 500, 299);
+		x = new BinarySparseVector();
+		x.add(0);
+		r.scores(x, subset, new int[]{0, 2});
+		assertEquals(1 / (1 + (float)Math.exp(-1)), subset[0], 1e-6f);
+		assertEquals(1 / (1 + (float)Math.exp( 1)), subset[2], 1e-6f);
+	}
+	
+	/** @return a regression vector of one feature whose weights are the raw scores of the labels. */
+	private MultinomialWeightVector createRegression(float... weights)
+	{
+		MultinomialWeightVector w = new MultinomialWeightVector(weights.length, 1)
+		{
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			public boolean isRegression()
+			{
+				return true;
+			}
+		};
+		
+		w.fromArray(weights);
+		return w;
+	}
+}